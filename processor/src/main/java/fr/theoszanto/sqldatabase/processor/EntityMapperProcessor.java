@@ -0,0 +1,343 @@
+package fr.theoszanto.sqldatabase.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generate, for each {@code @DatabaseTable} or {@code @DatabaseModelBinding}
+ * class or record, a {@code GeneratedMapper} implementation accessing the
+ * column fields without reflection, which the {@code EntityMapper} picks up
+ * instead of method handles.
+ *
+ * <p>Fields are read and written directly when accessible from the package of
+ * the table type, and otherwise through their non-private
+ * {@code getX}/{@code isX}/{@code x()} and {@code setX} accessors. Records and
+ * types with a {@code @DatabaseConstructor} are created through that
+ * constructor, other types through their no-arg constructor, reflectively if
+ * it is private. Types which cannot be mapped this way are reported with a
+ * note and keep the reflective mapping.</p>
+ *
+ * <p>Only accessors are generated: the table metadata and the CRUD SQL keep
+ * being built at runtime, since they depend on the runtime naming rules and
+ * are cached per type on first use.</p>
+ *
+ * <p>The processor only relies on annotation names, hence does not depend on
+ * the API itself.</p>
+ */
+public class EntityMapperProcessor extends AbstractProcessor {
+	private static final String ANNOTATIONS_PACKAGE = "fr.theoszanto.sqldatabase.annotations.";
+	private static final String TABLE_ANNOTATION = ANNOTATIONS_PACKAGE + "DatabaseTable";
+	private static final String MODEL_BINDING_ANNOTATION = ANNOTATIONS_PACKAGE + "DatabaseModelBinding";
+	private static final String EXCLUDE_ANNOTATION = ANNOTATIONS_PACKAGE + "DatabaseExclude";
+	private static final String CONSTRUCTOR_ANNOTATION = ANNOTATIONS_PACKAGE + "DatabaseConstructor";
+	private static final String MAPPER_INTERFACE = "fr.theoszanto.sqldatabase.entities.GeneratedMapper";
+	private static final String MAPPER_SUFFIX = "_DatabaseMapper";
+	// Records are resolved by name to keep running on Java 8
+	private static final String RECORD_KIND = "RECORD";
+	private static final String RECORD_CLASS_NAME = "java.lang.Record";
+	private static final Set<Modifier> IGNORED_FIELDS_MODIFIERS = new HashSet<>(Arrays.asList(Modifier.FINAL, Modifier.TRANSIENT, Modifier.STATIC, Modifier.NATIVE));
+	private static final Set<Modifier> IGNORED_CONSTRUCTED_FIELDS_MODIFIERS = new HashSet<>(Arrays.asList(Modifier.TRANSIENT, Modifier.STATIC, Modifier.NATIVE));
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return new LinkedHashSet<>(Arrays.asList(TABLE_ANNOTATION, MODEL_BINDING_ANNOTATION));
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> types = new LinkedHashSet<>();
+		for (TypeElement annotation : annotations)
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+				if (element.getKind() == ElementKind.CLASS || element.getKind().name().equals(RECORD_KIND))
+					types.add((TypeElement) element);
+		for (TypeElement type : types) {
+			try {
+				this.generate(type);
+			} catch (IOException e) {
+				this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate entity mapper: " + e, type);
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		String reason = this.unsupported(type);
+		ExecutableElement boundConstructor = boundConstructor(type);
+		boolean constructorBound = boundConstructor != null || type.getKind().name().equals(RECORD_KIND);
+		List<VariableElement> fields = new ArrayList<>();
+		if (reason == null)
+			reason = this.collectFields(type, constructorBound ? IGNORED_CONSTRUCTED_FIELDS_MODIFIERS : IGNORED_FIELDS_MODIFIERS, fields);
+		List<String> readers = new ArrayList<>();
+		List<String> writers = new ArrayList<>();
+		for (int i = 0; reason == null && i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String reader = this.reader(type, field);
+			String writer = this.writer(type, field);
+			if (reader == null)
+				reason = "no accessible getter for field " + field.getSimpleName();
+			else if (writer == null && !constructorBound)
+				reason = "no accessible setter for field " + field.getSimpleName();
+			readers.add(reader);
+			writers.add(writer);
+		}
+		// Types with a private no-arg constructor are still created reflectively
+		boolean instantiable = !constructorBound && this.noArgConstructor(type) != null;
+		if (reason == null && constructorBound && this.canonicalConstructor(type, boundConstructor, fields) == null)
+			reason = "no accessible constructor matching the fields";
+		if (reason != null) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "No entity mapper generated, " + reason, type);
+			return;
+		}
+
+		PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+		String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+		String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + MAPPER_SUFFIX;
+		String typeName = type.getQualifiedName().toString();
+
+		JavaFileObject file = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, type);
+		try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+			out.println("public final class " + simpleName + " implements " + MAPPER_INTERFACE + "<" + typeName + "> {");
+			out.print("\tprivate static final String[] FIELDS = {");
+			for (int i = 0; i < fields.size(); i++)
+				out.print((i == 0 ? " \"" : ", \"") + fields.get(i).getSimpleName() + "\"");
+			out.println(" };");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic String[] getFields() {");
+			out.println("\t\treturn FIELDS.clone();");
+			out.println("\t}");
+			out.println();
+			if (constructorBound) {
+				out.println("\t@Override");
+				out.println("\tpublic " + typeName + " construct(Object[] arguments) {");
+				out.print("\t\treturn new " + typeName + "(");
+				for (int i = 0; i < fields.size(); i++)
+					out.print((i == 0 ? "(" : ", (") + this.castType(fields.get(i).asType()) + ") arguments[" + i + "]");
+				out.println(");");
+				out.println("\t}");
+				out.println();
+			} else if (instantiable) {
+				out.println("\t@Override");
+				out.println("\tpublic boolean isInstantiable() {");
+				out.println("\t\treturn true;");
+				out.println("\t}");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic " + typeName + " newInstance() {");
+				out.println("\t\treturn new " + typeName + "();");
+				out.println("\t}");
+				out.println();
+			}
+			out.println("\t@Override");
+			out.println("\tpublic Object get(int field, " + typeName + " entity) {");
+			out.println("\t\tswitch (field) {");
+			for (int i = 0; i < fields.size(); i++)
+				out.println("\t\tcase " + i + ": return entity." + readers.get(i) + ";");
+			out.println("\t\tdefault: throw new IndexOutOfBoundsException(\"Invalid field: \" + field);");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic void set(int field, " + typeName + " entity, Object value) {");
+			out.println("\t\tswitch (field) {");
+			for (int i = 0; i < fields.size(); i++) {
+				VariableElement field = fields.get(i);
+				String fieldWriter = writers.get(i);
+				if (fieldWriter == null)
+					out.println("\t\tcase " + i + ": throw new IllegalStateException(\"Cannot write final field " + field.getSimpleName() + "\");");
+				else
+					out.println("\t\tcase " + i + ": entity." + String.format(fieldWriter, "(" + this.castType(field.asType()) + ") value") + "; break;");
+			}
+			out.println("\t\tdefault: throw new IndexOutOfBoundsException(\"Invalid field: \" + field);");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println("}");
+		}
+	}
+
+	private String unsupported(TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT))
+			return "abstract class";
+		if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+			return "local class";
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			if (element.getModifiers().contains(Modifier.PRIVATE))
+				return "private class " + element;
+			// Nested records are implicitly static
+			if (((TypeElement) element).getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC) && !element.getKind().name().equals(RECORD_KIND))
+				return "inner class " + element;
+		}
+		return null;
+	}
+
+	private String collectFields(TypeElement type, Set<Modifier> ignoredModifiers, List<VariableElement> fields) {
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind() != ElementKind.FIELD || excluded(element))
+				continue;
+			boolean ignored = false;
+			for (Modifier modifier : element.getModifiers())
+				ignored |= ignoredModifiers.contains(modifier);
+			if (ignored)
+				continue;
+			for (VariableElement field : fields)
+				if (field.getSimpleName().contentEquals(element.getSimpleName()))
+					return "hidden field " + element.getSimpleName();
+			fields.add((VariableElement) element);
+		}
+		TypeMirror superType = type.getSuperclass();
+		if (superType.getKind() != TypeKind.DECLARED)
+			return null;
+		TypeElement superElement = (TypeElement) ((DeclaredType) superType).asElement();
+		if (superElement.getQualifiedName().contentEquals(Object.class.getName()) || superElement.getQualifiedName().contentEquals(RECORD_CLASS_NAME))
+			return null;
+		return this.collectFields(superElement, ignoredModifiers, fields);
+	}
+
+	/**
+	 * Get the expression reading the given field from an entity, relative to
+	 * the entity.
+	 */
+	private String reader(TypeElement type, VariableElement field) {
+		if (this.accessible(type, field))
+			return field.getSimpleName().toString();
+		String name = field.getSimpleName().toString();
+		String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		TypeKind kind = field.asType().getKind();
+		boolean bool = kind == TypeKind.BOOLEAN || this.erasure(field.asType()).toString().equals(Boolean.class.getName());
+		for (String candidate : bool ? new String[] { "get" + capitalized, "is" + capitalized, name } : new String[] { "get" + capitalized, name }) {
+			ExecutableElement method = this.method(type, candidate, field.asType(), null);
+			if (method != null)
+				return candidate + "()";
+		}
+		return null;
+	}
+
+	/**
+	 * Get the format of the statement writing the given field of an entity,
+	 * relative to the entity, taking the value as argument.
+	 */
+	private String writer(TypeElement type, VariableElement field) {
+		if (this.accessible(type, field) && !field.getModifiers().contains(Modifier.FINAL))
+			return field.getSimpleName() + " = %s";
+		String name = field.getSimpleName().toString();
+		String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		return this.method(type, setter, null, field.asType()) == null ? null : setter + "(%s)";
+	}
+
+	private ExecutableElement method(TypeElement type, String name, TypeMirror returnType, TypeMirror parameterType) {
+		for (Element element : this.processingEnv.getElementUtils().getAllMembers(type)) {
+			if (element.getKind() != ElementKind.METHOD || !element.getSimpleName().contentEquals(name) || element.getModifiers().contains(Modifier.STATIC) || !this.accessible(type, element))
+				continue;
+			ExecutableElement method = (ExecutableElement) element;
+			if (parameterType == null ? !method.getParameters().isEmpty() || !this.sameType(method.getReturnType(), returnType)
+					: method.getParameters().size() != 1 || !this.sameType(method.getParameters().get(0).asType(), parameterType))
+				continue;
+			return method;
+		}
+		return null;
+	}
+
+	private ExecutableElement noArgConstructor(TypeElement type) {
+		for (Element element : type.getEnclosedElements())
+			if (element.getKind() == ElementKind.CONSTRUCTOR && ((ExecutableElement) element).getParameters().isEmpty())
+				return this.accessible(type, element) ? (ExecutableElement) element : null;
+		return null;
+	}
+
+	private ExecutableElement canonicalConstructor(TypeElement type, ExecutableElement bound, List<VariableElement> fields) {
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind() != ElementKind.CONSTRUCTOR || (bound != null && element != bound))
+				continue;
+			List<? extends VariableElement> parameters = ((ExecutableElement) element).getParameters();
+			if (parameters.size() != fields.size())
+				continue;
+			boolean matching = true;
+			for (int i = 0; matching && i < fields.size(); i++)
+				matching = this.sameType(parameters.get(i).asType(), fields.get(i).asType());
+			if (matching)
+				return this.accessible(type, element) ? (ExecutableElement) element : null;
+		}
+		return null;
+	}
+
+	private static ExecutableElement boundConstructor(TypeElement type) {
+		for (Element element : type.getEnclosedElements())
+			if (element.getKind() == ElementKind.CONSTRUCTOR && annotated(element, CONSTRUCTOR_ANNOTATION))
+				return (ExecutableElement) element;
+		return null;
+	}
+
+	/**
+	 * Whether the given member can be used by the mapper generated in the
+	 * package of the table type.
+	 */
+	private boolean accessible(TypeElement type, Element member) {
+		Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PUBLIC))
+			return true;
+		if (modifiers.contains(Modifier.PRIVATE))
+			return false;
+		return this.processingEnv.getElementUtils().getPackageOf(type).equals(this.processingEnv.getElementUtils().getPackageOf(member));
+	}
+
+	private boolean sameType(TypeMirror a, TypeMirror b) {
+		return this.processingEnv.getTypeUtils().isSameType(this.erasure(a), this.erasure(b));
+	}
+
+	private TypeMirror erasure(TypeMirror type) {
+		return this.processingEnv.getTypeUtils().erasure(type);
+	}
+
+	private String castType(TypeMirror type) {
+		if (type.getKind().isPrimitive())
+			return this.processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+		return this.erasure(type).toString();
+	}
+
+	private static boolean excluded(Element element) {
+		return annotated(element, EXCLUDE_ANNOTATION);
+	}
+
+	private static boolean annotated(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors())
+			if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName))
+				return true;
+		return false;
+	}
+}
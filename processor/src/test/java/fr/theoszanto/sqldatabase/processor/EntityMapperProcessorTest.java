@@ -0,0 +1,112 @@
+package fr.theoszanto.sqldatabase.processor;
+
+import fr.theoszanto.sqldatabase.entities.ColumnEntity;
+import fr.theoszanto.sqldatabase.entities.EntitiesFactory;
+import fr.theoszanto.sqldatabase.entities.EntityMapper;
+import fr.theoszanto.sqldatabase.entities.GeneratedMapper;
+import fr.theoszanto.sqldatabase.entities.TableEntity;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.lang.model.SourceVersion;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compile sample entities with the processor and check that the generated
+ * mappers are the ones used by {@link EntityMapper}.
+ */
+class EntityMapperProcessorTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void beanWithPrivateFieldsAndConstructor() throws Exception {
+		Class<?> type = this.compile("demo.Bean",
+				"package demo;",
+				"import fr.theoszanto.sqldatabase.annotations.*;",
+				"@DatabaseTable(\"bean\")",
+				"public class Bean {",
+				"	@DatabasePrimaryKey private int id;",
+				"	private String name;",
+				"	private boolean active;",
+				"	private Bean() {}",
+				"	public int getId() { return this.id; }",
+				"	public void setId(int id) { this.id = id; }",
+				"	public String getName() { return this.name; }",
+				"	public void setName(String name) { this.name = name; }",
+				"	public boolean isActive() { return this.active; }",
+				"	public void setActive(boolean active) { this.active = active; }",
+				"}");
+		TableEntity table = EntitiesFactory.table(type);
+		EntityMapper mapper = table.getMapper();
+		assertTrue(mapper.isGenerated());
+		assertTrue(mapper.isInstantiable());
+		Object entity = mapper.newInstance();
+		for (ColumnEntity column : table)
+			mapper.set(column, entity, column.getType() == int.class ? (Object) 42 : column.getType() == boolean.class ? (Object) true : "name");
+		for (ColumnEntity column : table)
+			assertEquals(column.getType() == int.class ? (Object) 42 : column.getType() == boolean.class ? (Object) true : "name", mapper.get(column, entity));
+	}
+
+	@Test
+	void record() throws Exception {
+		assumeTrue(SourceVersion.latestSupported().ordinal() >= 16, "Records require Java 16");
+		Class<?> type = this.compile("demo.Point",
+				"package demo;",
+				"import fr.theoszanto.sqldatabase.annotations.*;",
+				"@DatabaseTable(\"point\")",
+				"public record Point(@DatabasePrimaryKey long id, String label) {}");
+		TableEntity table = EntitiesFactory.table(type);
+		EntityMapper mapper = table.getMapper();
+		assertTrue(mapper.isGenerated());
+		assertTrue(mapper.isConstructorBound());
+		Object[] arguments = mapper.newArguments();
+		for (ColumnEntity column : table)
+			arguments[column.getIndex()] = column.getType() == long.class ? (Object) 7L : "label";
+		Object entity = mapper.construct(arguments);
+		for (ColumnEntity column : table)
+			assertEquals(arguments[column.getIndex()], mapper.get(column, entity));
+	}
+
+	private @NotNull Class<?> compile(@NotNull String name, @NotNull String @NotNull... lines) throws Exception {
+		Path source = this.dir.resolve("src").resolve(name.replace('.', File.separatorChar) + ".java");
+		Path classes = this.dir.resolve("classes");
+		Files.createDirectories(source.getParent());
+		Files.createDirectories(classes);
+		Files.write(source, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		int status = compiler.run(null, null, errors,
+				"-classpath", location(GeneratedMapper.class) + File.pathSeparator + location(NotNull.class),
+				"-processorpath", location(EntityMapperProcessor.class),
+				"-d", classes.toString(),
+				source.toString());
+		assertEquals(0, status, errors.toString());
+		assertTrue(Files.exists(classes.resolve(name.replace('.', File.separatorChar) + GeneratedMapper.SUFFIX + ".class")));
+		ClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, this.getClass().getClassLoader());
+		return Class.forName(name, true, loader);
+	}
+
+	private static @NotNull String location(@NotNull Class<?> type) throws IOException {
+		try {
+			return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		} catch (Exception e) {
+			throw new IOException("Cannot locate " + type, e);
+		}
+	}
+}
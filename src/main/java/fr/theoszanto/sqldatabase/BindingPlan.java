@@ -0,0 +1,119 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.entities.ColumnEntity;
+import fr.theoszanto.sqldatabase.entities.EntitiesFactory;
+import fr.theoszanto.sqldatabase.entities.ForeignKeyEntity;
+import fr.theoszanto.sqldatabase.entities.TableEntity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolution of the columns of a table type against the columns of a result
+ * set shape: for each column of the table, the index of the matching result
+ * column (or {@code -1} if absent), the nested plan of deep fetched foreign
+ * keys, and the lazy fetched foreign keys.
+ */
+/* package-private */ class BindingPlan {
+	private final @NotNull TableEntity table;
+	private final @NotNull ColumnEntity @NotNull[] columns;
+	private final int @NotNull[] ordinals;
+	private final @Nullable BindingPlan @NotNull[] nested;
+	private final @Nullable ForeignKeyEntity @NotNull[] lazy;
+
+	private BindingPlan(@NotNull TableEntity table, @NotNull Map<@NotNull String, @NotNull Integer> labels, @NotNull String prefix, @NotNull Database database) {
+		this.table = table;
+		int size = table.size();
+		this.columns = new ColumnEntity[size];
+		this.ordinals = new int[size];
+		this.nested = new BindingPlan[size];
+		this.lazy = new ForeignKeyEntity[size];
+		int i = 0;
+		for (ColumnEntity column : table) {
+			String name = prefix + column.getName();
+			Integer ordinal = labels.get(name.toLowerCase(Locale.ROOT));
+			this.columns[i] = column;
+			this.ordinals[i] = ordinal == null ? -1 : ordinal;
+			if (ordinal == null)
+				database.logIgnoredColumn(name);
+			else if (column.isForeign()) {
+				ForeignKeyEntity foreignKey = table.getForeignKeys().get(column);
+				if (foreignKey != null && foreignKey.isDeepFetch())
+					this.nested[i] = new BindingPlan(EntitiesFactory.table(column.getType()), labels, name + Database.BIND_RECURSION_SEPARATOR, database);
+				else if (foreignKey != null && foreignKey.isLazyFetch())
+					this.lazy[i] = foreignKey;
+			}
+			i++;
+		}
+	}
+
+	public @NotNull TableEntity getTable() {
+		return this.table;
+	}
+
+	public int size() {
+		return this.columns.length;
+	}
+
+	public @NotNull ColumnEntity getColumn(int i) {
+		return this.columns[i];
+	}
+
+	public int getOrdinal(int i) {
+		return this.ordinals[i];
+	}
+
+	public @Nullable BindingPlan getNested(int i) {
+		return this.nested[i];
+	}
+
+	public @Nullable ForeignKeyEntity getLazy(int i) {
+		return this.lazy[i];
+	}
+
+	public static @NotNull BindingPlan create(@NotNull Class<?> type, @NotNull String @NotNull[] labels, @NotNull Database database) {
+		// Mimic ResultSet.findColumn: case-insensitive, first matching column wins
+		Map<String, Integer> ordinals = new HashMap<>();
+		for (int i = 0; i < labels.length; i++)
+			ordinals.putIfAbsent(labels[i].toLowerCase(Locale.ROOT), i + 1);
+		return new BindingPlan(EntitiesFactory.table(type), ordinals, "", database);
+	}
+
+	public static @NotNull String @NotNull[] labels(@NotNull ResultSetMetaData metaData) throws SQLException {
+		String[] labels = new String[metaData.getColumnCount()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = metaData.getColumnLabel(i + 1);
+		return labels;
+	}
+
+	/* package-private */ static class Key {
+		private final @NotNull Class<?> type;
+		private final @NotNull String @NotNull[] labels;
+		private final int hash;
+
+		public Key(@NotNull Class<?> type, @NotNull String @NotNull[] labels) {
+			this.type = type;
+			this.labels = labels;
+			this.hash = 31 * type.hashCode() + Arrays.hashCode(labels);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return this.type == key.type && Arrays.equals(this.labels, key.labels);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package fr.theoszanto.sqldatabase;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Result of a query stored column by column: integer columns as a
+ * {@code long[]}, real columns as a {@code double[]}, text columns as
+ * dictionary codes and any other column as an {@code Object[]}, each with a
+ * bitmap of its {@code NULL} values.
+ */
+public class ColumnarResult {
+	private final @NotNull Column @NotNull[] columns;
+	private final @NotNull Map<@NotNull String, @NotNull Column> columnsByName = new HashMap<>();
+	private int size = 0;
+
+	private ColumnarResult(@NotNull ResultSetMetaData metaData, int capacity) throws SQLException {
+		this.columns = new Column[metaData.getColumnCount()];
+		for (int i = 0; i < this.columns.length; i++) {
+			Column column = new Column(metaData.getColumnLabel(i + 1), Kind.of(metaData.getColumnType(i + 1)), capacity);
+			this.columns[i] = column;
+			this.columnsByName.putIfAbsent(column.name.toLowerCase(Locale.ROOT), column);
+		}
+	}
+
+	/* package-private */ static @NotNull ColumnarResult read(@NotNull ResultSet result, int expectedRows) throws SQLException {
+		ColumnarResult columnar = new ColumnarResult(result.getMetaData(), Math.max(expectedRows, 1));
+		while (result.next()) {
+			for (int i = 0; i < columnar.columns.length; i++)
+				columnar.columns[i].read(result, i + 1, columnar.size);
+			columnar.size++;
+		}
+		for (Column column : columnar.columns)
+			column.trim(columnar.size);
+		return columnar;
+	}
+
+	@Contract(pure = true)
+	public int size() {
+		return this.size;
+	}
+
+	@Contract(pure = true)
+	public int getColumnCount() {
+		return this.columns.length;
+	}
+
+	/**
+	 * Get a column by its index, starting at {@code 0}.
+	 */
+	@Contract(pure = true)
+	public @NotNull Column getColumn(int index) {
+		return this.columns[index];
+	}
+
+	/**
+	 * Get a column by its case-insensitive label.
+	 *
+	 * @throws IllegalArgumentException If the result has no such column
+	 */
+	@Contract(pure = true)
+	public @NotNull Column getColumn(@NotNull String name) {
+		Column column = this.columnsByName.get(name.toLowerCase(Locale.ROOT));
+		if (column == null)
+			throw new IllegalArgumentException("Unknown column: " + name);
+		return column;
+	}
+
+	public enum Kind {
+		LONG,
+		DOUBLE,
+		STRING,
+		OBJECT;
+
+		private static @NotNull Kind of(int sqlType) {
+			switch (sqlType) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return LONG;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return DOUBLE;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+			case Types.CLOB:
+				return STRING;
+			default:
+				return OBJECT;
+			}
+		}
+	}
+
+	public static class Column {
+		private final @NotNull String name;
+		private final @NotNull Kind kind;
+		private final @NotNull BitSet nulls = new BitSet();
+		private long @Nullable[] longs;
+		private double @Nullable[] doubles;
+		private int @Nullable[] codes;
+		private @Nullable Object @Nullable[] objects;
+		private final @Nullable Map<@NotNull String, @NotNull Integer> dictionaryCodes;
+		private @NotNull String @Nullable[] dictionary;
+
+		private Column(@NotNull String name, @NotNull Kind kind, int capacity) {
+			this.name = name;
+			this.kind = kind;
+			this.dictionaryCodes = kind == Kind.STRING ? new HashMap<>() : null;
+			switch (kind) {
+			case LONG:
+				this.longs = new long[capacity];
+				break;
+			case DOUBLE:
+				this.doubles = new double[capacity];
+				break;
+			case STRING:
+				this.codes = new int[capacity];
+				break;
+			default:
+				this.objects = new Object[capacity];
+				break;
+			}
+		}
+
+		private void read(@NotNull ResultSet result, int index, int row) throws SQLException {
+			switch (this.kind) {
+			case LONG:
+				assert this.longs != null;
+				if (row == this.longs.length)
+					this.longs = Arrays.copyOf(this.longs, row << 1);
+				this.longs[row] = result.getLong(index);
+				break;
+			case DOUBLE:
+				assert this.doubles != null;
+				if (row == this.doubles.length)
+					this.doubles = Arrays.copyOf(this.doubles, row << 1);
+				this.doubles[row] = result.getDouble(index);
+				break;
+			case STRING:
+				assert this.codes != null && this.dictionaryCodes != null;
+				if (row == this.codes.length)
+					this.codes = Arrays.copyOf(this.codes, row << 1);
+				String str = result.getString(index);
+				if (str == null)
+					this.codes[row] = -1;
+				else {
+					Integer code = this.dictionaryCodes.get(str);
+					if (code == null) {
+						code = this.dictionaryCodes.size();
+						this.dictionaryCodes.put(str, code);
+					}
+					this.codes[row] = code;
+				}
+				break;
+			default:
+				assert this.objects != null;
+				if (row == this.objects.length)
+					this.objects = Arrays.copyOf(this.objects, row << 1);
+				this.objects[row] = result.getObject(index);
+				break;
+			}
+			if (result.wasNull())
+				this.nulls.set(row);
+		}
+
+		private void trim(int size) {
+			if (this.longs != null && this.longs.length != size)
+				this.longs = Arrays.copyOf(this.longs, size);
+			if (this.doubles != null && this.doubles.length != size)
+				this.doubles = Arrays.copyOf(this.doubles, size);
+			if (this.codes != null && this.codes.length != size)
+				this.codes = Arrays.copyOf(this.codes, size);
+			if (this.objects != null && this.objects.length != size)
+				this.objects = Arrays.copyOf(this.objects, size);
+			if (this.dictionaryCodes != null) {
+				this.dictionary = new String[this.dictionaryCodes.size()];
+				for (Map.Entry<String, Integer> entry : this.dictionaryCodes.entrySet())
+					this.dictionary[entry.getValue()] = entry.getKey();
+				this.dictionaryCodes.clear();
+			}
+		}
+
+		@Contract(pure = true)
+		public @NotNull String getName() {
+			return this.name;
+		}
+
+		@Contract(pure = true)
+		public @NotNull Kind getKind() {
+			return this.kind;
+		}
+
+		@Contract(pure = true)
+		public boolean isNull(int row) {
+			return this.nulls.get(row);
+		}
+
+		/**
+		 * Get the bitmap of the {@code NULL} values of this column, indexed by row.
+		 */
+		@Contract(pure = true)
+		public @NotNull BitSet getNulls() {
+			return (BitSet) this.nulls.clone();
+		}
+
+		/**
+		 * Get the values of a {@link Kind#LONG} column, {@code 0} for {@code NULL}.
+		 * The array is shared, not copied.
+		 */
+		@Contract(pure = true)
+		public long @NotNull[] getLongs() {
+			if (this.longs == null)
+				throw new IllegalStateException("Column " + this.name + " is not a " + Kind.LONG + " column but a " + this.kind + " one");
+			return this.longs;
+		}
+
+		/**
+		 * Get the values of a {@link Kind#DOUBLE} column, {@code 0} for {@code NULL}.
+		 * The array is shared, not copied.
+		 */
+		@Contract(pure = true)
+		public double @NotNull[] getDoubles() {
+			if (this.doubles == null)
+				throw new IllegalStateException("Column " + this.name + " is not a " + Kind.DOUBLE + " column but a " + this.kind + " one");
+			return this.doubles;
+		}
+
+		/**
+		 * Get the dictionary codes of a {@link Kind#STRING} column, indexes in
+		 * {@link #getDictionary()}, {@code -1} for {@code NULL}.
+		 * The array is shared, not copied.
+		 */
+		@Contract(pure = true)
+		public int @NotNull[] getCodes() {
+			if (this.codes == null)
+				throw new IllegalStateException("Column " + this.name + " is not a " + Kind.STRING + " column but a " + this.kind + " one");
+			return this.codes;
+		}
+
+		/**
+		 * Get the distinct values of a {@link Kind#STRING} column, in order of
+		 * first appearance. The array is shared, not copied.
+		 */
+		@Contract(pure = true)
+		public @NotNull String @NotNull[] getDictionary() {
+			if (this.dictionary == null)
+				throw new IllegalStateException("Column " + this.name + " is not a " + Kind.STRING + " column but a " + this.kind + " one");
+			return this.dictionary;
+		}
+
+		/**
+		 * Get the boxed value of the given row, whatever the kind of this column.
+		 */
+		@Contract(pure = true)
+		public @Nullable Object get(int row) {
+			if (this.nulls.get(row))
+				return null;
+			switch (this.kind) {
+			case LONG:
+				return this.getLongs()[row];
+			case DOUBLE:
+				return this.getDoubles()[row];
+			case STRING:
+				return this.getDictionary()[this.getCodes()[row]];
+			default:
+				assert this.objects != null;
+				return this.objects[row];
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package fr.theoszanto.sqldatabase;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Query of entities built once and executed many times with fresh
+ * parameters, keeping its binding plan across executions.
+ *
+ * @see Database#compile(Class, fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLConditionBuilder)
+ * @see Database#compile(Class, fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLSelectBuilder)
+ */
+public class CompiledQuery<T> {
+	private final @NotNull Database database;
+	private final @NotNull Class<T> type;
+	private final @NotNull String sql;
+	private final @NotNull String countSql;
+	private final @NotNull Set<@NotNull String> tables;
+	private final int parameterCount;
+	private volatile @Nullable BindingPlan plan;
+
+	/* package-private */ CompiledQuery(@NotNull Database database, @NotNull Class<T> type, @NotNull String sql, @NotNull String countSql, @NotNull Set<@NotNull String> tables) {
+		this.database = database;
+		this.type = type;
+		this.sql = sql;
+		this.countSql = countSql;
+		this.tables = Collections.unmodifiableSet(tables);
+		this.parameterCount = countParameters(sql);
+	}
+
+	@Contract(pure = true)
+	public @NotNull Class<T> getType() {
+		return this.type;
+	}
+
+	@Contract(pure = true)
+	public @NotNull String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Get the names of the tables read by this query.
+	 */
+	@Contract(pure = true)
+	public @NotNull Set<@NotNull String> getTables() {
+		return this.tables;
+	}
+
+	/**
+	 * Get the number of parameters expected by each execution of this query.
+	 */
+	@Contract(pure = true)
+	public int getParameterCount() {
+		return this.parameterCount;
+	}
+
+	public @Nullable T get(@Nullable Object @NotNull... params) throws DatabaseException {
+		return this.database.getSql(this.type, this, this.sql, this.check(params));
+	}
+
+	public @NotNull List<@NotNull T> list(@Nullable Object @NotNull... params) throws DatabaseException {
+		return this.database.listSql(this.type, this, this.sql, this.check(params));
+	}
+
+	/**
+	 * List the entities through the {@link Database#setQueryCache(fr.theoszanto.sqldatabase.cache.QueryCache)
+	 * query cache}, as {@link Database#listSqlCached(Class, java.util.Collection, String, Object...)}.
+	 */
+	public @NotNull List<@NotNull T> listCached(@Nullable Object @NotNull... params) throws DatabaseException {
+		return this.database.listSqlCached(this.type, this, this.tables, this.sql, this.check(params));
+	}
+
+	/**
+	 * Count the rows matched by this query.
+	 *
+	 * @return The count of rows, or {@code -1} if the query failed
+	 */
+	public int count(@Nullable Object @NotNull... params) {
+		return this.database.count(this.tables, this.countSql, this.check(params));
+	}
+
+	public @NotNull DatabaseCursor<T> cursor(@Nullable Object @NotNull... params) {
+		return this.database.cursorSql(this.type, this, this.sql, this.check(params));
+	}
+
+	public @NotNull Stream<@NotNull T> stream(@Nullable Object @NotNull... params) {
+		return this.cursor(params).stream();
+	}
+
+	public void forEach(@NotNull Consumer<? super @NotNull T> action, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (DatabaseCursor<T> cursor = this.cursor(params)) {
+			while (cursor.hasNext())
+				action.accept(cursor.next());
+		}
+	}
+
+	/* package-private */ @NotNull BindingPlan plan(@NotNull ResultSet result) throws DatabaseException {
+		BindingPlan plan = this.plan;
+		if (plan == null)
+			this.plan = plan = this.database.plan(this.type, result);
+		return plan;
+	}
+
+	private @Nullable Object @NotNull[] check(@Nullable Object @NotNull[] params) {
+		if (params.length != this.parameterCount)
+			throw new IllegalArgumentException("Expected " + this.parameterCount + " parameters but got " + params.length + " for query: " + this.sql);
+		return params;
+	}
+
+	/**
+	 * Count the {@code ?} placeholders of the given SQL, outside of string
+	 * literals and quoted names.
+	 */
+	private static int countParameters(@NotNull String sql) {
+		int count = 0;
+		char quote = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+			} else if (c == '\'' || c == '"' || c == '`')
+				quote = c;
+			else if (c == '[')
+				quote = ']';
+			else if (c == '?')
+				count++;
+		}
+		return count;
+	}
+}
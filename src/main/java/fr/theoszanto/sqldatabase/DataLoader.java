@@ -0,0 +1,133 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.entities.ColumnEntity;
+import fr.theoszanto.sqldatabase.entities.EntityMapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loader of entities by key, coalescing the loads requested until the next
+ * {@link #dispatch()} into a single query (split to fit the {@link
+ * Database#getMaxQueryParameters() maximum number of query parameters}).
+ *
+ * <p>Loaded entities are memoized until {@link #clear()}, hence a loader is
+ * meant to be short-lived, such as one per request. Integer keys are
+ * converted to the type of the key field, so that {@code get(1)} and
+ * {@code get(1L)} load the same entity.</p>
+ */
+public class DataLoader<T> {
+	private final @NotNull Database database;
+	private final @NotNull Class<T> type;
+	private final @NotNull ColumnEntity column;
+	private final @NotNull Map<@NotNull Object, @NotNull CompletableFuture<@Nullable T>> futures = new HashMap<>();
+	private final @NotNull Map<@NotNull Object, @NotNull CompletableFuture<@Nullable T>> queue = new LinkedHashMap<>();
+
+	/* package-private */ DataLoader(@NotNull Database database, @NotNull Class<T> type, @NotNull ColumnEntity column) {
+		this.database = database;
+		this.type = type;
+		this.column = column;
+	}
+
+	public @NotNull Class<T> getType() {
+		return this.type;
+	}
+
+	/**
+	 * Queue the load of the entity with the given key, unless already loaded
+	 * or queued.
+	 *
+	 * @return The future entity, completed with {@code null} if missing, on the
+	 * next {@link #dispatch()}
+	 */
+	public synchronized @NotNull CompletableFuture<@Nullable T> load(@NotNull Object key) {
+		key = Objects.requireNonNull(Database.columnKey(this.column, key));
+		CompletableFuture<T> future = this.futures.get(key);
+		if (future == null) {
+			future = new CompletableFuture<>();
+			this.futures.put(key, future);
+			this.queue.put(key, future);
+		}
+		return future;
+	}
+
+	/**
+	 * Load the entity with the given key, along with all the entities queued
+	 * meanwhile, including by other threads.
+	 */
+	public @Nullable T get(@NotNull Object key) throws DatabaseException {
+		CompletableFuture<T> future = this.load(key);
+		this.dispatch();
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof DatabaseException ? (DatabaseException) e.getCause() : new DatabaseException(e.getCause());
+		}
+	}
+
+	/**
+	 * Load all the queued entities.
+	 */
+	public void dispatch() throws DatabaseException {
+		Map<Object, CompletableFuture<T>> batch;
+		synchronized (this) {
+			if (this.queue.isEmpty())
+				return;
+			batch = new LinkedHashMap<>(this.queue);
+			this.queue.clear();
+		}
+		Map<Object, T> entities = new HashMap<>();
+		try {
+			EntityMapper mapper = this.column.getTable().getMapper();
+			for (T entity : this.database.listIn(this.type, this.column, batch.keySet()))
+				entities.put(Database.columnKey(this.column, mapper.get(this.column, entity)), entity);
+		} catch (ReflectiveOperationException | DatabaseException e) {
+			DatabaseException exception = e instanceof DatabaseException ? (DatabaseException) e : new DatabaseException(e);
+			// Failed loads are not memoized
+			synchronized (this) {
+				this.futures.keySet().removeAll(batch.keySet());
+			}
+			for (CompletableFuture<T> future : batch.values())
+				future.completeExceptionally(exception);
+			throw exception;
+		}
+		for (Map.Entry<Object, CompletableFuture<T>> entry : batch.entrySet())
+			entry.getValue().complete(entities.get(entry.getKey()));
+	}
+
+	/**
+	 * Load the entities with the given keys in a single dispatch.
+	 *
+	 * @return The entities, in keys order, {@code null} for missing ones
+	 */
+	public @NotNull List<@Nullable T> getAll(@NotNull Iterable<?> keys) throws DatabaseException {
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		for (Object key : keys)
+			futures.add(this.load(key));
+		this.dispatch();
+		List<T> entities = new ArrayList<>(futures.size());
+		try {
+			for (CompletableFuture<T> future : futures)
+				entities.add(future.join());
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof DatabaseException ? (DatabaseException) e.getCause() : new DatabaseException(e.getCause());
+		}
+		return entities;
+	}
+
+	/**
+	 * Forget all the loaded entities, keeping the queued ones.
+	 */
+	public synchronized void clear() {
+		this.futures.clear();
+		this.futures.putAll(this.queue);
+	}
+}
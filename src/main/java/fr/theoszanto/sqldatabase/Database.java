@@ -1,51 +1,101 @@
 package fr.theoszanto.sqldatabase;
 
+import fr.theoszanto.sqldatabase.annotations.DatabaseCache;
+import fr.theoszanto.sqldatabase.cache.EntityCache;
+import fr.theoszanto.sqldatabase.cache.QueryCache;
+import fr.theoszanto.sqldatabase.codecs.TypeCodec;
+import fr.theoszanto.sqldatabase.codecs.TypeCodecs;
+import fr.theoszanto.sqldatabase.connection.ConnectionPool;
+import fr.theoszanto.sqldatabase.connection.PooledConnection;
+import fr.theoszanto.sqldatabase.connection.PooledStatement;
 import fr.theoszanto.sqldatabase.entities.ColumnEntity;
 import fr.theoszanto.sqldatabase.entities.EntitiesFactory;
+import fr.theoszanto.sqldatabase.entities.EntityMapper;
 import fr.theoszanto.sqldatabase.entities.ForeignKeyEntity;
 import fr.theoszanto.sqldatabase.entities.IndexEntity;
+import fr.theoszanto.sqldatabase.entities.PrimaryKeyEntity;
 import fr.theoszanto.sqldatabase.entities.TableEntity;
+import fr.theoszanto.sqldatabase.sqlbuilders.BuiltQuery;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLBuilder;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLValue;
 import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLConditionBuilder;
+import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLSelectBuilder;
+import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLUpdateBuilder;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
-import java.sql.Connection;
-import java.sql.Date;
-import java.sql.DriverManager;
+import java.math.BigInteger;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Time;
-import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Database {
 	private final @NotNull File folder;
-	private @Nullable Connection connection;
+	private final @NotNull ConnectionPool pool = new ConnectionPool();
 	private @Nullable Level logLevel = null;
+	private int batchSize = 500;
+	private int fetchSize = 0;
+	private int maxQueryParameters = 999;
+	private boolean dirtyTracking = false;
+	private final @NotNull EntitySnapshots snapshots = new EntitySnapshots();
+	private final @NotNull Map<@NotNull Class<?>, @NotNull EntityCache> entityCaches = new ConcurrentHashMap<>();
+	private volatile @Nullable QueryCache queryCache = null;
+	private @NotNull Transaction.Mode defaultTransactionMode = Transaction.Mode.DEFERRED;
+	private final @NotNull ThreadLocal<@Nullable Transaction> transaction = new ThreadLocal<>();
+	private final @NotNull Map<BindingPlan.@NotNull Key, @NotNull BindingPlan> bindingPlans = new ConcurrentHashMap<>();
 
 	public static final char BIND_RECURSION_SEPARATOR = '_';
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_CREATE_TABLE_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_DROP_TABLE_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_GET_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_LIST_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_COUNT_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_ADD_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_SET_REQUESTS_CACHE = new HashMap<>();
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_DELETE_REQUESTS_CACHE = new HashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_CREATE_TABLE_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_DROP_TABLE_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_GET_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_LIST_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_COUNT_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_ADD_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_ADD_RETURNING_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_SET_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull String> SQL_DELETE_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull Map<@NotNull BitSet, @NotNull String>> SQL_UPDATE_REQUESTS_CACHE = new ConcurrentHashMap<>();
+	// Wrapper types read as their primitive type by getValue, as they always were
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+
+	static {
+		PRIMITIVE_TYPES.put(Boolean.class, boolean.class);
+		PRIMITIVE_TYPES.put(Byte.class, byte.class);
+		PRIMITIVE_TYPES.put(Short.class, short.class);
+		PRIMITIVE_TYPES.put(Integer.class, int.class);
+		PRIMITIVE_TYPES.put(Long.class, long.class);
+		PRIMITIVE_TYPES.put(Float.class, float.class);
+		PRIMITIVE_TYPES.put(Double.class, double.class);
+		PRIMITIVE_TYPES.put(Character.class, char.class);
+	}
+	private static final @NotNull EntityCache NO_ENTITY_CACHE = new EntityCache(1, 0, DatabaseCache.EvictionPolicy.LRU);
+	private static final @NotNull Object NO_RESULT = new Object();
 	private static final @NotNull Logger LOGGER = Logger.getLogger(Database.class.getName());
 
 	public Database(@NotNull File folder) {
@@ -71,9 +121,7 @@ public class Database {
 				else
 					throw new IOException("Unable to create the database file \"" + parent + "\".");
 			}
-			if (this.connection != null && !this.connection.isClosed())
-				this.connection.close();
-			this.connection = DriverManager.getConnection("jdbc:sqlite:" + data);
+			this.pool.open("jdbc:sqlite:" + data);
 			LOGGER.info("Connected to database!");
 		} catch (SQLException | IOException e) {
 			LOGGER.log(Level.SEVERE, "Unable to connect to database.", e);
@@ -81,6 +129,14 @@ public class Database {
 		}
 	}
 
+	public void close() {
+		this.pool.close();
+	}
+
+	public @NotNull ConnectionPool getPool() {
+		return this.pool;
+	}
+
 	public void setLogLevel(@Nullable Level logLevel) {
 		this.logLevel = logLevel;
 	}
@@ -89,39 +145,362 @@ public class Database {
 		return this.logLevel;
 	}
 
-	private @NotNull PreparedStatement prepare(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
-		if (this.connection == null)
-			throw new DatabaseException("Database connection not initialized");
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("Invalid batch size");
+		this.batchSize = batchSize;
+	}
+
+	public boolean isDirtyTracking() {
+		return this.dirtyTracking;
+	}
+
+	/**
+	 * Enable or disable the snapshot of the column values of the entities
+	 * read from the database, allowing {@link #update(Object)} to only write
+	 * changed columns. Snapshots of already read entities are kept.
+	 */
+	public void setDirtyTracking(boolean dirtyTracking) {
+		this.dirtyTracking = dirtyTracking;
+	}
+
+	public int getMaxQueryParameters() {
+		return this.maxQueryParameters;
+	}
+
+	/**
+	 * Set the maximum number of parameters of the queries split by the
+	 * library, such as the {@code IN} lists of batch loading. Defaults to
+	 * {@code 999}, the limit of SQLite before 3.32.0, which raised it to
+	 * {@code 32766}.
+	 */
+	public void setMaxQueryParameters(int maxQueryParameters) {
+		if (maxQueryParameters <= 0)
+			throw new IllegalArgumentException("Invalid max query parameters");
+		this.maxQueryParameters = maxQueryParameters;
+	}
+
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		if (fetchSize < 0)
+			throw new IllegalArgumentException("Invalid fetch size");
+		this.fetchSize = fetchSize;
+	}
+
+	public @NotNull Transaction.Mode getDefaultTransactionMode() {
+		return this.defaultTransactionMode;
+	}
+
+	public void setDefaultTransactionMode(@NotNull Transaction.Mode defaultTransactionMode) {
+		this.defaultTransactionMode = defaultTransactionMode;
+	}
+
+	/**
+	 * Get the cache of the entities of the given type read by primary key, if
+	 * the type is annotated with {@link DatabaseCache}.
+	 */
+	public @Nullable EntityCache getEntityCache(@NotNull Class<?> type) {
+		EntityCache cache = this.entityCaches.computeIfAbsent(type, t -> {
+			DatabaseCache descriptor = t.getAnnotation(DatabaseCache.class);
+			return descriptor == null ? NO_ENTITY_CACHE : new EntityCache(descriptor);
+		});
+		return cache == NO_ENTITY_CACHE ? null : cache;
+	}
+
+	public @Nullable QueryCache getQueryCache() {
+		return this.queryCache;
+	}
+
+	/**
+	 * Enable, or disable if {@code null}, the caching of the results of the
+	 * {@code *Cached} queries and of {@link #count(Class)} and
+	 * {@link #countWhere(Class, SQLConditionBuilder, Object...)}. Cached
+	 * results are dropped when their tables are written through this database,
+	 * and all of them by {@link #execute(String, Object...)}.
+	 */
+	public void setQueryCache(@Nullable QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	private void invalidate(@NotNull Object value) throws DatabaseException {
+		EntityCache cache = this.getEntityCache(value.getClass());
+		if (cache == null)
+			return;
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		EntityMapper mapper = table.getMapper();
+		Object[] id = new Object[table.getPrimaryKey().size()];
+		int i = 0;
 		try {
-			if (this.logLevel != null) {
+			for (ColumnEntity column : table.getPrimaryKey())
+				id[i++] = mapper.get(column, value);
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+		this.invalidate(cache, cacheKey(table, id));
+	}
+
+	/**
+	 * Remove the given key from the given cache, or clear it if {@code null},
+	 * and do it again once the current transaction completes, as concurrent
+	 * readers may cache the committed value meanwhile.
+	 */
+	private void invalidate(@NotNull EntityCache cache, @Nullable Object key) {
+		if (key == null)
+			cache.clear();
+		else
+			cache.remove(key);
+		Transaction transaction = this.transaction.get();
+		if (transaction != null)
+			transaction.afterCompletion(key == null ? cache::clear : () -> cache.remove(key));
+	}
+
+	/**
+	 * Drop the cached results of queries reading the table of the given type,
+	 * or all of them if {@code null}, now and once the current transaction
+	 * completes.
+	 */
+	private void invalidateQueries(@Nullable Class<?> type) {
+		QueryCache cache = this.queryCache;
+		if (cache == null)
+			return;
+		String table = type == null ? null : EntitiesFactory.table(type).getName();
+		if (table == null)
+			cache.clear();
+		else
+			cache.invalidate(table);
+		Transaction transaction = this.transaction.get();
+		if (transaction != null)
+			transaction.afterCompletion(table == null ? cache::clear : () -> cache.invalidate(table));
+	}
+
+	/**
+	 * Run the given query through the {@link #setQueryCache(QueryCache) query
+	 * cache}, if any. Results read within a transaction are not cached, as
+	 * they may not be committed.
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> @Nullable R cached(@NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull[] params, @NotNull Supplier<@Nullable R> query) throws DatabaseException {
+		QueryCache cache = this.queryCache;
+		if (cache == null)
+			return query.get();
+		Object cached = cache.get(sql, params);
+		if (cached != null)
+			return cached == NO_RESULT ? null : (R) cached;
+		long stamp = cache.getStamp(tables);
+		R result = query.get();
+		if (this.transaction.get() == null)
+			cache.put(sql, params, tables, result == null ? NO_RESULT : result, stamp);
+		return result;
+	}
+
+	/**
+	 * Get the cache key of the given primary key: the value itself for single
+	 * column keys, or the list of values, with integers converted to the type
+	 * of their column so that equal keys are equal whatever their type.
+	 */
+	/* package-private */ static @NotNull Object cacheKey(@NotNull TableEntity table, @Nullable Object @NotNull[] id) {
+		Object[] key = id.clone();
+		int i = 0;
+		for (ColumnEntity column : table.getPrimaryKey()) {
+			if (i < key.length)
+				key[i] = columnKey(column, key[i]);
+			i++;
+		}
+		return key.length == 1 ? key[0] : Arrays.asList(key);
+	}
+
+	/**
+	 * Convert the given integer value to the type of the given column, so that
+	 * it is equal to the values read from that column.
+	 */
+	/* package-private */ static @Nullable Object columnKey(@NotNull ColumnEntity column, @Nullable Object value) {
+		Class<?> type = column.getType();
+		boolean integral = type == byte.class || type == Byte.class || type == short.class || type == Short.class || type == int.class || type == Integer.class || type == long.class || type == Long.class;
+		if (integral && (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long))
+			return castKey(type, ((Number) value).longValue());
+		return value;
+	}
+
+	/**
+	 * Open a unit of work with its own identity map over this database.
+	 */
+	public @NotNull DatabaseSession openSession() {
+		return new DatabaseSession(this);
+	}
+
+	public boolean isInTransaction() {
+		return this.transaction.get() != null;
+	}
+
+	public @Nullable Transaction getTransaction() {
+		return this.transaction.get();
+	}
+
+	public void inTransaction(@NotNull Transaction.Action action) throws DatabaseException {
+		this.inTransaction(this.defaultTransactionMode, action);
+	}
+
+	public void inTransaction(@NotNull Transaction.Mode mode, @NotNull Transaction.Action action) throws DatabaseException {
+		this.computeInTransaction(mode, transaction -> {
+			action.run(transaction);
+			return null;
+		});
+	}
+
+	public <R> R computeInTransaction(@NotNull Transaction.Computation<R> computation) throws DatabaseException {
+		return this.computeInTransaction(this.defaultTransactionMode, computation);
+	}
+
+	/**
+	 * Run the given computation within a transaction, committed if it
+	 * completes normally and rolled back if it throws. The calling thread holds
+	 * the writer connection for the whole scope, so every operation of this
+	 * database made by this thread meanwhile takes part in the transaction.
+	 * Nested calls open a savepoint within the surrounding transaction (and
+	 * ignore the given mode).
+	 */
+	public <R> R computeInTransaction(@NotNull Transaction.Mode mode, @NotNull Transaction.Computation<R> computation) throws DatabaseException {
+		Transaction parent = this.transaction.get();
+		Transaction transaction = new Transaction(this, mode, parent);
+		// The writer is held until the end of the transaction, for the statements of this thread to reuse
+		PooledConnection writer = this.pool.writer();
+		try {
+			this.executeWrite(transaction.begin());
+			this.transaction.set(transaction);
+			R result;
+			try {
+				result = computation.compute(transaction);
+			} catch (RuntimeException | Error e) {
+				this.rollback(transaction, e);
+				throw e;
+			} finally {
+				this.transaction.set(parent);
+			}
+			if (transaction.isRollbackOnly())
+				this.rollback(transaction, null);
+			else {
+				try {
+					this.executeWrite(transaction.commit());
+				} catch (DatabaseException e) {
+					this.rollback(transaction, e);
+					throw e;
+				}
+			}
+			return result;
+		} finally {
+			writer.close();
+			if (parent == null)
+				transaction.completed();
+		}
+	}
+
+	private void rollback(@NotNull Transaction transaction, @Nullable Throwable cause) {
+		try {
+			for (String sql : transaction.rollback())
+				this.executeWrite(sql);
+		} catch (DatabaseException e) {
+			if (cause == null)
+				throw e;
+			cause.addSuppressed(e);
+		}
+	}
+
+	private @NotNull PooledStatement prepare(@NotNull PooledConnection connection, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try {
+			if (this.logLevel != null)
 				LOGGER.log(this.logLevel, "SQL request: " + sql);
-				LOGGER.log(this.logLevel, "Request params: (" + params.length + ")");
-				for (Object param : params)
-					LOGGER.log(this.logLevel, "\t" + param);
+			PooledStatement statement = connection.prepare(sql);
+			try {
+				this.bindParams(statement, params);
+			} catch (SQLException e) {
+				statement.close();
+				throw e;
 			}
-			PreparedStatement statement = this.connection.prepareStatement(sql);
-			for (int i = 0; i < params.length; i++)
-				statement.setObject(i + 1, params[i]);
 			return statement;
 		} catch (SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	private void bindParams(@NotNull PooledStatement statement, @Nullable Object @NotNull... params) throws SQLException {
+		if (this.logLevel != null) {
+			LOGGER.log(this.logLevel, "Request params: (" + params.length + ")");
+			for (Object param : params)
+				LOGGER.log(this.logLevel, "\t" + param);
+		}
+		PreparedStatement prepared = statement.getStatement();
+		for (int i = 0; i < params.length; i++) {
+			Object param = params[i];
+			TypeCodec<Object> codec = TypeCodecs.forValue(param);
+			if (codec == null)
+				prepared.setObject(i + 1, param);
+			else
+				codec.write(prepared, i + 1, param);
+		}
+	}
+
+	/**
+	 * Execute the given statement. As its effects are unknown, all the
+	 * {@link DatabaseCache entity caches} and the {@link QueryCache query
+	 * cache} of this database are cleared.
+	 */
 	public void execute(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
-		try (PreparedStatement statement = this.prepare(sql, params)) {
+		this.executeWrite(sql, params);
+		this.invalidateQueries(null);
+		for (EntityCache cache : this.entityCaches.values())
+			if (cache != NO_ENTITY_CACHE)
+				this.invalidate(cache, null);
+	}
+
+	/**
+	 * Execute the given built statement, binding the given values to its
+	 * {@link BuiltQuery#PLACEHOLDER placeholders}.
+	 */
+	public void execute(@NotNull BuiltQuery query, @Nullable Object @NotNull... values) throws DatabaseException {
+		this.execute(query.getSql(), query.bind(values));
+	}
+
+	private void executeWrite(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.writer();
+			 PooledStatement statement = this.prepare(connection, sql, params)) {
 			statement.execute();
 		} catch (SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	/**
+	 * Execute the given data manipulation statement with the writer connection.
+	 *
+	 * @return The number of rows changed by the statement
+	 */
+	private int executeUpdate(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.writer();
+			 PooledStatement statement = this.prepare(connection, sql, params)) {
+			return statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
 	public void createTable(@NotNull Class<?> type) throws DatabaseException {
-		this.execute(SQL_CREATE_TABLE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlCreateTableQuery));
+		this.executeWrite(SQL_CREATE_TABLE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlCreateTableQuery));
+		this.invalidateQueries(type);
 	}
 
 	public void dropTable(@NotNull Class<?> type) throws DatabaseException {
-		this.execute(SQL_DROP_TABLE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlDropTableQuery));
+		this.executeWrite(SQL_DROP_TABLE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlDropTableQuery));
+		this.invalidateQueries(type);
+		EntityCache cache = this.getEntityCache(type);
+		if (cache != null)
+			this.invalidate(cache, null);
 	}
 
 	public void regenerateTable(@NotNull Class<?> type) throws DatabaseException {
@@ -134,7 +513,7 @@ public class Database {
 		for (ColumnEntity column : table) {
 			IndexEntity index = EntitiesFactory.index(column);
 			if (index != null)
-				this.execute(index.create().build());
+				this.executeWrite(index.create().build());
 		}
 	}
 
@@ -143,7 +522,7 @@ public class Database {
 		for (ColumnEntity column : table) {
 			IndexEntity index = EntitiesFactory.index(column);
 			if (index != null)
-				this.execute(index.drop().build());
+				this.executeWrite(index.drop().build());
 		}
 	}
 
@@ -168,7 +547,109 @@ public class Database {
 	}
 
 	public <T> @Nullable T get(@NotNull Class<T> type, @NotNull Object @NotNull... id) throws DatabaseException {
-		return this.getSql(type, SQL_GET_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlGetQuery), id);
+		EntityCache cache = this.getEntityCache(type);
+		if (cache == null)
+			return this.getSql(type, SQL_GET_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlGetQuery), id);
+		Object key = cacheKey(EntitiesFactory.table(type), id);
+		Object cached = cache.get(key);
+		if (cached != null)
+			return type.cast(cached);
+		long stamp = cache.getStamp();
+		T value = this.getSql(type, SQL_GET_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlGetQuery), id);
+		// Values read within a transaction may be rolled back
+		if (value != null && this.transaction.get() == null)
+			cache.put(key, value, stamp);
+		return value;
+	}
+
+	/**
+	 * Get the entities with the given primary keys, in keys order, skipping
+	 * missing ones.
+	 *
+	 * @see #getAllAsMap(Class, Collection)
+	 */
+	public <T> @NotNull List<@NotNull T> getAll(@NotNull Class<T> type, @NotNull Collection<?> ids) throws DatabaseException {
+		return new ArrayList<>(this.getAllAsMap(type, ids).values());
+	}
+
+	/**
+	 * Get the entities with the given primary keys at once, with {@code IN}
+	 * queries split to fit the {@link #getMaxQueryParameters() maximum number
+	 * of query parameters}. Multi-column keys are given as {@code Object[]},
+	 * and compared as row values.
+	 *
+	 * @return The found entities, in keys order, by key as given (as a
+	 * {@code List} for multi-column keys)
+	 */
+	public <T> @NotNull Map<@NotNull Object, @NotNull T> getAllAsMap(@NotNull Class<T> type, @NotNull Collection<?> ids) throws DatabaseException {
+		TableEntity table = EntitiesFactory.table(type);
+		PrimaryKeyEntity primaryKey = table.getPrimaryKey();
+		ColumnEntity[] columns = new ColumnEntity[primaryKey.size()];
+		int c = 0;
+		for (ColumnEntity column : primaryKey)
+			columns[c++] = column;
+		// Requested keys by key converted to the columns types, as read back from entities
+		Map<Object, List<Object>> keys = new LinkedHashMap<>();
+		for (Object id : ids) {
+			Object key;
+			Object requested;
+			if (columns.length == 1) {
+				key = columnKey(columns[0], id);
+				requested = id;
+			} else if (id instanceof Object[] && ((Object[]) id).length == columns.length) {
+				Object[] values = ((Object[]) id).clone();
+				for (int j = 0; j < columns.length; j++)
+					values[j] = columnKey(columns[j], values[j]);
+				key = Arrays.asList(values);
+				requested = Arrays.asList((Object[]) id);
+			} else
+				throw new IllegalArgumentException("Invalid multi-column primary key of " + type + ": " + (id instanceof Object[] ? Arrays.toString((Object[]) id) : id));
+			keys.computeIfAbsent(key, k -> new ArrayList<>(1)).add(requested);
+		}
+		Map<Object, T> entities = new HashMap<>();
+		EntityMapper mapper = table.getMapper();
+		try {
+			if (columns.length == 1) {
+				for (T entity : this.listIn(type, columns[0], keys.keySet()))
+					entities.put(columnKey(columns[0], mapper.get(columns[0], entity)), entity);
+			} else {
+				SQLValue[] columnValues = new SQLValue[columns.length];
+				SQLValue[] placeholders = new SQLValue[columns.length];
+				for (int i = 0; i < columns.length; i++)
+					columnValues[i] = columns[i].asSQLValue();
+				Arrays.fill(placeholders, SQLValue.PLACEHOLDER);
+				Object[] all = keys.keySet().toArray();
+				int chunkSize = Math.max(1, this.maxQueryParameters / columns.length);
+				for (int from = 0; from < all.length; from += chunkSize) {
+					int to = Math.min(from + chunkSize, all.length);
+					SQLValue[][] rows = new SQLValue[to - from][];
+					Object[] params = new Object[(to - from) * columns.length];
+					for (int i = from; i < to; i++) {
+						rows[i - from] = placeholders;
+						List<?> key = (List<?>) all[i];
+						for (int j = 0; j < columns.length; j++)
+							params[(i - from) * columns.length + j] = key.get(j);
+					}
+					String sql = table.select().where(SQLConditionBuilder.inValues(SQLValue.list(columnValues), rows)).build();
+					for (T entity : this.listSql(type, sql, params)) {
+						Object[] key = new Object[columns.length];
+						for (int j = 0; j < columns.length; j++)
+							key[j] = columnKey(columns[j], mapper.get(columns[j], entity));
+						entities.put(Arrays.asList(key), entity);
+					}
+				}
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+		Map<Object, T> result = new LinkedHashMap<>();
+		for (Map.Entry<Object, List<Object>> key : keys.entrySet()) {
+			T entity = entities.get(key.getKey());
+			if (entity != null)
+				for (Object requested : key.getValue())
+					result.put(requested, entity);
+		}
+		return result;
 	}
 
 	public <T> @Nullable T getWhere(@NotNull Class<T> type, @NotNull SQLConditionBuilder where, @NotNull Object @NotNull... params) throws DatabaseException {
@@ -176,24 +657,65 @@ public class Database {
 	}
 
 	public <T> @Nullable T getSql(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
-		try (PreparedStatement statement = this.prepare(sql, params)) {
-			ResultSet result = statement.executeQuery();
-			return result.next() ? this.bind(type, result) : null;
+		return this.getSql(type, null, sql, params);
+	}
+
+	public <T> @Nullable T getSql(@NotNull Class<T> type, @NotNull BuiltQuery query, @Nullable Object @NotNull... values) throws DatabaseException {
+		return this.getSql(type, query.getSql(), query.bind(values));
+	}
+
+	/* package-private */ <T> @Nullable T getSql(@NotNull Class<T> type, @Nullable CompiledQuery<T> compiled, @NotNull String sql, @Nullable Object @NotNull[] params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			return result.next() ? this.bind(type, this.plan(type, compiled, result), result, new ReferenceBatch(this)) : null;
 		} catch (SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	/**
+	 * Get the first entity returned by the given query, reading the given
+	 * tables, through the {@link #setQueryCache(QueryCache) query cache}.
+	 * The returned entity may be shared with other callers and must not be
+	 * modified.
+	 */
+	public <T> @Nullable T getSqlCached(@NotNull Class<T> type, @NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.cached(tables, sql, params, () -> this.getSql(type, sql, params));
+	}
+
+	/**
+	 * Get the first value returned by the given query, or {@code null} if it
+	 * returns no row. Primitive wrapper types are read with the codec of their
+	 * primitive type, so that an SQL {@code NULL} value (such as the
+	 * {@code SUM} of no rows) is read as {@code 0} or {@code false}, whereas
+	 * other types read {@code null}.
+	 */
 	@SuppressWarnings("unchecked")
 	public <T> @Nullable T getValue(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
-		try (PreparedStatement statement = this.prepare(sql, params)) {
-			ResultSet result = statement.executeQuery();
-			return result.next() ? (T) getResultObject(type, result, result.getMetaData().getColumnName(1)) : null;
+		Class<?> primitive = PRIMITIVE_TYPES.get(type);
+		TypeCodec<T> codec = primitive == null ? TypeCodecs.get(type) : (TypeCodec<T>) TypeCodecs.get(primitive);
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			return result.next() ? codec.read(result, 1) : null;
 		} catch (SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	public <T> @Nullable T getValue(@NotNull Class<T> type, @NotNull BuiltQuery query, @Nullable Object @NotNull... values) throws DatabaseException {
+		return this.getValue(type, query.getSql(), query.bind(values));
+	}
+
+	/**
+	 * Get the first value returned by the given query, reading the given
+	 * tables, through the {@link #setQueryCache(QueryCache) query cache}.
+	 */
+	public <T> @Nullable T getValueCached(@NotNull Class<T> type, @NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.cached(tables, sql, params, () -> this.getValue(type, sql, params));
+	}
+
 	@Contract("_, !null, _, _ -> !null")
 	public <T> @Nullable T getValueOrDefault(@NotNull Class<T> type, @Nullable T def, @NotNull String sql, @Nullable Object @NotNull... params) {
 		try {
@@ -212,45 +734,583 @@ public class Database {
 		return this.listSql(type, EntitiesFactory.table(type).select().where(where).build(), params);
 	}
 
+	/**
+	 * List the entities returned by the given query, reading the tables it
+	 * selects from and joins, through the {@link #setQueryCache(QueryCache)
+	 * query cache}. Tables only read by sub-queries must be given explicitly
+	 * to {@link #listSqlCached(Class, Collection, String, Object...)}.
+	 */
+	public <T> @NotNull List<@NotNull T> listCached(@NotNull Class<T> type, @NotNull SQLSelectBuilder select, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.listSqlCached(type, select.getTables(), select.build(), params);
+	}
+
+	/**
+	 * List the entities returned by the given query, reading the given
+	 * tables, through the {@link #setQueryCache(QueryCache) query cache}.
+	 * The returned list is a copy but its entities may be shared with other
+	 * callers and must not be modified.
+	 */
+	public <T> @NotNull List<@NotNull T> listSqlCached(@NotNull Class<T> type, @NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.listSqlCached(type, null, tables, sql, params);
+	}
+
+	/* package-private */ <T> @NotNull List<@NotNull T> listSqlCached(@NotNull Class<T> type, @Nullable CompiledQuery<T> compiled, @NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull[] params) throws DatabaseException {
+		List<T> list = this.cached(tables, sql, params, () -> Collections.unmodifiableList(this.listSql(type, compiled, sql, params)));
+		assert list != null;
+		return new ArrayList<>(list);
+	}
+
 	public <T> @NotNull List<@NotNull T> listSql(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
-		try (PreparedStatement statement = this.prepare(sql, params)) {
-			ResultSet result = statement.executeQuery();
+		return this.listSql(type, null, sql, params);
+	}
+
+	public <T> @NotNull List<@NotNull T> listSql(@NotNull Class<T> type, @NotNull BuiltQuery query, @Nullable Object @NotNull... values) throws DatabaseException {
+		return this.listSql(type, query.getSql(), query.bind(values));
+	}
+
+	/* package-private */ <T> @NotNull List<@NotNull T> listSql(@NotNull Class<T> type, @Nullable CompiledQuery<T> compiled, @NotNull String sql, @Nullable Object @NotNull[] params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
 			List<T> list = new ArrayList<>();
+			BindingPlan plan = this.plan(type, compiled, result);
+			ReferenceBatch batch = new ReferenceBatch(this);
 			while (result.next())
-				list.add(this.bind(type, result));
+				list.add(this.bind(type, plan, result, batch));
 			return list;
 		} catch (SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	/**
+	 * List the values of the first column of the given query, without boxing.
+	 * {@code NULL} values are read as {@code 0}.
+	 */
+	public int @NotNull[] listInts(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			int[] values = new int[16];
+			int size = 0;
+			while (result.next()) {
+				if (size == values.length)
+					values = Arrays.copyOf(values, size << 1);
+				values[size++] = result.getInt(1);
+			}
+			return size == values.length ? values : Arrays.copyOf(values, size);
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * @see #listInts(String, Object...)
+	 */
+	public long @NotNull[] listLongs(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			long[] values = new long[16];
+			int size = 0;
+			while (result.next()) {
+				if (size == values.length)
+					values = Arrays.copyOf(values, size << 1);
+				values[size++] = result.getLong(1);
+			}
+			return size == values.length ? values : Arrays.copyOf(values, size);
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * @see #listInts(String, Object...)
+	 */
+	public double @NotNull[] listDoubles(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			double[] values = new double[16];
+			int size = 0;
+			while (result.next()) {
+				if (size == values.length)
+					values = Arrays.copyOf(values, size << 1);
+				values[size++] = result.getDouble(1);
+			}
+			return size == values.length ? values : Arrays.copyOf(values, size);
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	public @NotNull ColumnarResult queryColumnar(@NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.queryColumnar(16, sql, params);
+	}
+
+	/**
+	 * Read the whole result of the given query column by column, in a single
+	 * pass.
+	 *
+	 * @param expectedRows The expected number of rows, used to size the columns
+	 */
+	public @NotNull ColumnarResult queryColumnar(int expectedRows, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params);
+			 ResultSet result = statement.executeQuery()) {
+			return ColumnarResult.read(result, expectedRows);
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * Stream the values of the first column of the given query to the given
+	 * action, without boxing nor buffering them, using the {@link
+	 * #getFetchSize() default fetch size}. {@code NULL} values are read as
+	 * {@code 0}.
+	 */
+	public void forEachLong(@NotNull LongConsumer action, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		try (PooledConnection connection = this.pool.reader();
+			 PooledStatement statement = this.prepare(connection, sql, params)) {
+			statement.getStatement().setFetchSize(this.fetchSize);
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next())
+					action.accept(result.getLong(1));
+			} finally {
+				statement.getStatement().setFetchSize(0);
+			}
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * Load the entities referenced by the given foreign key from the given
+	 * entities, with as few {@code IN} queries as possible, and resolve the
+	 * {@link LazyReference lazy references} among them.
+	 *
+	 * @return The referenced entities, by referenced key, converted to the type
+	 * of the referenced column
+	 */
+	public @NotNull Map<@NotNull Object, @NotNull Object> loadReferences(@NotNull Collection<?> entities, @NotNull ForeignKeyEntity foreignKey) throws DatabaseException {
+		TableEntity table = foreignKey.getColumn().getTable();
+		TableEntity referencedTable = foreignKey.getTable();
+		ColumnEntity reference = foreignKey.getReference();
+		Map<Object, Object> referenced = new HashMap<>();
+		Set<Object> keys = new LinkedHashSet<>();
+		List<LazyReference<?>> references = new ArrayList<>();
+		try {
+			for (Object entity : entities) {
+				Object value = table.getMapper().get(foreignKey.getColumn(), entity);
+				if (value == null)
+					continue;
+				if (foreignKey.isDeepFetch())
+					referenced.put(columnKey(reference, referencedTable.getMapper().get(reference, value)), value);
+				else if (foreignKey.isLazyFetch()) {
+					LazyReference<?> lazy = (LazyReference<?>) value;
+					Object key = lazy.getKey();
+					if (lazy.isLoaded()) {
+						Object loaded = lazy.get();
+						if (loaded != null)
+							referenced.put(columnKey(reference, key == null ? referencedTable.getMapper().get(reference, loaded) : key), loaded);
+					} else if (key != null) {
+						keys.add(columnKey(reference, key));
+						references.add(lazy);
+					}
+				} else
+					keys.add(columnKey(reference, value));
+			}
+			keys.removeAll(referenced.keySet());
+			for (Object entity : this.listIn(referencedTable.getType(), reference, keys))
+				referenced.put(columnKey(reference, referencedTable.getMapper().get(reference, entity)), entity);
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+		for (LazyReference<?> lazy : references)
+			lazy.resolve(referenced.get(columnKey(reference, lazy.getKey())));
+		return referenced;
+	}
+
+	/**
+	 * Create a loader of entities of the given type by primary key, batching
+	 * the pending loads into single queries.
+	 */
+	public <T> @NotNull DataLoader<T> loader(@NotNull Class<T> type) {
+		PrimaryKeyEntity primaryKey = EntitiesFactory.table(type).getPrimaryKey();
+		if (primaryKey.size() != 1)
+			throw new IllegalArgumentException("Cannot create loader for multi-column primary key of " + type);
+		return new DataLoader<>(this, type, primaryKey.iterator().next());
+	}
+
+	/**
+	 * List the entities of the given type whose given column is one of the
+	 * given keys, splitting the {@code IN} list to fit the {@link
+	 * #getMaxQueryParameters() maximum number of query parameters}.
+	 */
+	/* package-private */ <T> @NotNull List<@NotNull T> listIn(@NotNull Class<T> type, @NotNull ColumnEntity column, @NotNull Collection<?> keys) throws DatabaseException {
+		List<T> list = new ArrayList<>(keys.size());
+		if (keys.isEmpty())
+			return list;
+		TableEntity table = EntitiesFactory.table(type);
+		Object[] all = keys.toArray();
+		for (int from = 0; from < all.length; from += this.maxQueryParameters) {
+			Object[] chunk = Arrays.copyOfRange(all, from, Math.min(from + this.maxQueryParameters, all.length));
+			SQLValue[] placeholders = new SQLValue[chunk.length];
+			Arrays.fill(placeholders, SQLValue.PLACEHOLDER);
+			list.addAll(this.listSql(type, table.select().where(SQLConditionBuilder.inList(column.asSQLValue(), placeholders)).build(), chunk));
+		}
+		return list;
+	}
+
+	/**
+	 * Compile the query of the entities of the given type matching the given
+	 * condition, to be executed many times without building it again.
+	 */
+	public <T> @NotNull CompiledQuery<T> compile(@NotNull Class<T> type, @Nullable SQLConditionBuilder where) {
+		TableEntity table = EntitiesFactory.table(type);
+		return new CompiledQuery<>(this, type, table.select().where(where).build(), buildSqlCountWhereQuery(type, where), Collections.singleton(table.getName()));
+	}
+
+	/**
+	 * Compile the given query of entities of the given type, to be executed
+	 * many times without building it again. The tables read by the query,
+	 * used by the {@link #setQueryCache(QueryCache) query cache}, are its
+	 * {@link SQLSelectBuilder#getTables() FROM and JOIN tables}.
+	 */
+	public <T> @NotNull CompiledQuery<T> compile(@NotNull Class<T> type, @NotNull SQLSelectBuilder select) {
+		String sql = select.build();
+		return new CompiledQuery<>(this, type, sql, "SELECT " + SQLValue.COUNT_ALL + " FROM (" + sql + ")", select.getTables());
+	}
+
+	public <T> @NotNull DatabaseCursor<T> cursor(@NotNull Class<T> type) {
+		return this.cursorSql(type, SQL_LIST_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlListQuery));
+	}
+
+	public <T> @NotNull DatabaseCursor<T> cursorWhere(@NotNull Class<T> type, @Nullable SQLConditionBuilder where, @NotNull Object @NotNull... params) {
+		return this.cursorSql(type, EntitiesFactory.table(type).select().where(where).build(), params);
+	}
+
+	/**
+	 * Create a cursor lazily executing the given query on its first access and
+	 * binding rows one at a time, using the {@link #getFetchSize() default
+	 * fetch size} unless overridden with {@link DatabaseCursor#fetchSize(int)}.
+	 */
+	public <T> @NotNull DatabaseCursor<T> cursorSql(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) {
+		return this.cursorSql(type, null, sql, params);
+	}
+
+	public <T> @NotNull DatabaseCursor<T> cursorSql(@NotNull Class<T> type, @NotNull BuiltQuery query, @Nullable Object @NotNull... values) {
+		return this.cursorSql(type, query.getSql(), query.bind(values));
+	}
+
+	/* package-private */ <T> @NotNull DatabaseCursor<T> cursorSql(@NotNull Class<T> type, @Nullable CompiledQuery<T> compiled, @NotNull String sql, @Nullable Object @NotNull[] params) {
+		return new DatabaseCursor<>(() -> {
+			PooledConnection connection = this.pool.reader();
+			try {
+				return this.prepare(connection, sql, params);
+			} catch (RuntimeException e) {
+				connection.close();
+				throw e;
+			}
+		}, new DatabaseCursor.RowMapper<T>() {
+			private @Nullable BindingPlan plan;
+			private final @NotNull ReferenceBatch batch = new ReferenceBatch(Database.this);
+
+			@Override
+			public @NotNull T map(@NotNull ResultSet result) throws DatabaseException {
+				if (this.plan == null)
+					this.plan = Database.this.plan(type, compiled, result);
+				return Database.this.bind(type, this.plan, result, this.batch);
+			}
+		}, this.fetchSize);
+	}
+
+	public <T> @NotNull Stream<@NotNull T> stream(@NotNull Class<T> type) {
+		return this.cursor(type).stream();
+	}
+
+	public <T> @NotNull Stream<@NotNull T> streamWhere(@NotNull Class<T> type, @Nullable SQLConditionBuilder where, @NotNull Object @NotNull... params) {
+		return this.cursorWhere(type, where, params).stream();
+	}
+
+	public <T> @NotNull Stream<@NotNull T> streamSql(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) {
+		return this.cursorSql(type, sql, params).stream();
+	}
+
+	public <T> void forEach(@NotNull Class<T> type, @NotNull Consumer<? super @NotNull T> action) throws DatabaseException {
+		this.forEach(this.cursor(type), action);
+	}
+
+	public <T> void forEachWhere(@NotNull Class<T> type, @NotNull Consumer<? super @NotNull T> action, @Nullable SQLConditionBuilder where, @NotNull Object @NotNull... params) throws DatabaseException {
+		this.forEach(this.cursorWhere(type, where, params), action);
+	}
+
+	public <T> void forEachSql(@NotNull Class<T> type, @NotNull Consumer<? super @NotNull T> action, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		this.forEach(this.cursorSql(type, sql, params), action);
+	}
+
+	private <T> void forEach(@NotNull DatabaseCursor<T> cursor, @NotNull Consumer<? super @NotNull T> action) throws DatabaseException {
+		try (DatabaseCursor<T> c = cursor) {
+			while (c.hasNext())
+				action.accept(c.next());
+		}
+	}
+
 	public int count(@NotNull Class<?> type) throws DatabaseException {
-		return this.getValueOrDefault(int.class, -1, SQL_COUNT_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlCountQuery));
+		return this.count(Collections.singleton(EntitiesFactory.table(type).getName()), SQL_COUNT_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlCountQuery));
 	}
 
 	public int countWhere(@NotNull Class<?> type, @Nullable SQLConditionBuilder where, @NotNull Object @NotNull... params) throws DatabaseException {
-		return this.getValueOrDefault(int.class, -1, SQLBuilder.select().from(EntitiesFactory.table(type).getName()).value(SQLValue.COUNT_ALL).where(where).build(), params);
+		return this.count(Collections.singleton(EntitiesFactory.table(type).getName()), buildSqlCountWhereQuery(type, where), params);
 	}
 
-	public int add(@NotNull Object value) throws DatabaseException {
+	/* package-private */ int count(@NotNull Collection<@NotNull String> tables, @NotNull String sql, @Nullable Object @NotNull... params) {
 		try {
-			this.execute(SQL_ADD_REQUESTS_CACHE.computeIfAbsent(value.getClass(), Database::buildSqlAddQuery), explode(value, false));
-			return this.getValueOrDefault(int.class, -1, "SELECT last_insert_rowid() AS id");
-		} catch (ReflectiveOperationException e) {
+			Integer count = this.getValueCached(int.class, tables, sql, params);
+			return count == null ? -1 : count;
+		} catch (DatabaseException e) {
+			return -1;
+		}
+	}
+
+	public long add(@NotNull Object value) throws DatabaseException {
+		return this.add(value, false);
+	}
+
+	/**
+	 * Insert the given value, reading the generated key from the insert
+	 * statement itself through a {@code RETURNING} clause.
+	 *
+	 * @param updatePrimaryKey Whether to write the generated key back into the
+	 *                         auto-increment primary key field of {@code value},
+	 *                         which cannot be a constructor bound type
+	 * @return The generated auto-increment primary key, or the rowid of the
+	 * inserted row if the table has no auto-increment primary key.
+	 */
+	public long add(@NotNull Object value, boolean updatePrimaryKey) throws DatabaseException {
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		if (updatePrimaryKey && table.getMapper().isConstructorBound())
+			throw new IllegalArgumentException("Cannot update the primary key of an immutable entity: " + value.getClass());
+		try (PooledConnection connection = this.pool.writer();
+			 PooledStatement statement = this.prepare(connection, SQL_ADD_RETURNING_REQUESTS_CACHE.computeIfAbsent(value.getClass(), Database::buildSqlAddReturningQuery), explodeInsert(value));
+			 ResultSet result = statement.executeQuery()) {
+			long key = result.next() ? result.getLong(1) : -1;
+			PrimaryKeyEntity primaryKey = table.getPrimaryKey();
+			if (updatePrimaryKey && primaryKey.isAutoIncrement() && key != -1) {
+				ColumnEntity column = primaryKey.iterator().next();
+				table.getMapper().set(column, value, castKey(column.getType(), key));
+			}
+			this.invalidate(value);
+			this.invalidateQueries(value.getClass());
+			return key;
+		} catch (SQLException | ReflectiveOperationException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
 	public void set(@NotNull Object value) throws DatabaseException {
 		try {
-			this.execute(SQL_SET_REQUESTS_CACHE.computeIfAbsent(value.getClass(), Database::buildSqlSetQuery), explode(value, true));
+			Object[] values = explode(value, true);
+			this.executeWrite(SQL_SET_REQUESTS_CACHE.computeIfAbsent(value.getClass(), Database::buildSqlSetQuery), values);
+			this.invalidate(value);
+			this.invalidateQueries(value.getClass());
+			if (this.snapshots.get(value) != null)
+				this.snapshots.put(value, values);
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * Update the columns of the given entity which changed since it was read,
+	 * when {@link #setDirtyTracking(boolean) dirty tracking} is enabled, or
+	 * {@link #set(Object) set} the whole entity otherwise. Changes of primary
+	 * key columns are not tracked.
+	 *
+	 * @return Whether any column was written
+	 */
+	public boolean update(@NotNull Object value) throws DatabaseException {
+		Object[] snapshot = this.snapshots.get(value);
+		if (snapshot == null) {
+			this.set(value);
+			return true;
+		}
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		try {
+			Object[] values = explode(value, true);
+			BitSet changed = new BitSet(values.length);
+			for (ColumnEntity column : table)
+				if (!column.isPrimary() && !Objects.deepEquals(values[column.getIndex()], snapshot[column.getIndex()]))
+					changed.set(column.getIndex());
+			if (changed.isEmpty())
+				return false;
+			PrimaryKeyEntity primaryKey = table.getPrimaryKey();
+			Object[] params = new Object[changed.cardinality() + primaryKey.size()];
+			int i = 0;
+			for (int index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1))
+				params[i++] = values[index];
+			for (ColumnEntity column : primaryKey)
+				params[i++] = values[column.getIndex()];
+			String sql = SQL_UPDATE_REQUESTS_CACHE.computeIfAbsent(value.getClass(), type -> new ConcurrentHashMap<>())
+					.computeIfAbsent(changed, columns -> buildSqlUpdateQuery(table, columns));
+			this.executeWrite(sql, params);
+			this.invalidate(value);
+			this.invalidateQueries(value.getClass());
+			this.snapshots.put(value, values);
+			return true;
 		} catch (ReflectiveOperationException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
+	/**
+	 * Insert all the given values using JDBC batches of {@link #getBatchSize()}
+	 * rows, within a single transaction. Values of tables with an
+	 * auto-increment primary key are inserted one by one through a reused
+	 * statement instead, each reading its generated key from a
+	 * {@code RETURNING} clause.
+	 *
+	 * @return The generated keys, in iteration order, if the values' tables
+	 * have an auto-increment primary key, or an empty array otherwise.
+	 */
+	public long @NotNull[] addAll(@NotNull Iterable<?> values) throws DatabaseException {
+		long[][] keys = { new long[values instanceof Collection ? ((Collection<?>) values).size() : 16] };
+		int[] count = { 0 };
+		Set<Class<?>> types = new HashSet<>();
+		this.executeBatches(values, Object::getClass,
+				type -> EntitiesFactory.table(type).getPrimaryKey().isAutoIncrement()
+						? SQL_ADD_RETURNING_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlAddReturningQuery)
+						: SQL_ADD_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlAddQuery),
+				value -> {
+					this.invalidate(value);
+					if (types.add(value.getClass()))
+						this.invalidateQueries(value.getClass());
+					return explodeInsert(value);
+				},
+				null,
+				type -> EntitiesFactory.table(type).getPrimaryKey().isAutoIncrement(),
+				result -> {
+					if (count[0] == keys[0].length)
+						keys[0] = Arrays.copyOf(keys[0], Math.max(16, keys[0].length * 2));
+					keys[0][count[0]++] = result.next() ? result.getLong(1) : -1;
+				});
+		return Arrays.copyOf(keys[0], count[0]);
+	}
+
+	/**
+	 * Insert or update all the given values using JDBC batches of
+	 * {@link #getBatchSize()} rows, within a single transaction.
+	 */
+	public void setAll(@NotNull Iterable<?> values) throws DatabaseException {
+		Set<Class<?>> types = new HashSet<>();
+		this.executeBatches(values, Object::getClass,
+				type -> SQL_SET_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlSetQuery),
+				value -> {
+					this.invalidate(value);
+					if (types.add(value.getClass()))
+						this.invalidateQueries(value.getClass());
+					return explode(value, true);
+				},
+				null);
+	}
+
+	/**
+	 * Delete all the rows identified by the given primary keys using JDBC
+	 * batches of {@link #getBatchSize()} rows, within a single transaction.
+	 * Composite primary keys must be given as {@code Object[]}.
+	 *
+	 * @return The count of deleted rows.
+	 */
+	public int deleteAll(@NotNull Class<?> type, @NotNull Iterable<?> ids) throws DatabaseException {
+		int[] deleted = { 0 };
+		this.executeBatches(ids, id -> type,
+				t -> {
+					this.invalidateQueries(t);
+					return SQL_DELETE_REQUESTS_CACHE.computeIfAbsent(t, Database::buildSqlDeleteQuery);
+				},
+				id -> {
+					Object[] params = id instanceof Object[] ? (Object[]) id : new Object[] { id };
+					EntityCache cache = this.getEntityCache(type);
+					if (cache != null)
+						this.invalidate(cache, cacheKey(EntitiesFactory.table(type), params));
+					return params;
+				},
+				(t, counts) -> {
+					for (int c : counts)
+						if (c > 0)
+							deleted[0] += c;
+				});
+		return deleted[0];
+	}
+
+	private <V> void executeBatches(@NotNull Iterable<V> values, @NotNull Function<? super V, @NotNull Class<?>> typeOf, @NotNull Function<@NotNull Class<?>, @NotNull String> sqlOf, @NotNull BatchParams<? super V> paramsOf, @Nullable BatchCallback callback) throws DatabaseException {
+		this.executeBatches(values, typeOf, sqlOf, paramsOf, callback, null, null);
+	}
+
+	/**
+	 * Execute the statements of the given values, in JDBC batches for each
+	 * type except the {@code returning} ones, whose statements return rows and
+	 * are executed one value at a time, each result being given to
+	 * {@code rows}.
+	 */
+	private <V> void executeBatches(@NotNull Iterable<V> values, @NotNull Function<? super V, @NotNull Class<?>> typeOf, @NotNull Function<@NotNull Class<?>, @NotNull String> sqlOf, @NotNull BatchParams<? super V> paramsOf, @Nullable BatchCallback callback, @Nullable Predicate<@NotNull Class<?>> returning, @Nullable RowCallback rows) throws DatabaseException {
+		this.inTransaction(Transaction.Mode.IMMEDIATE, transaction -> {
+			try (PooledConnection connection = this.pool.writer()) {
+				PooledStatement statement = null;
+				Class<?> type = null;
+				boolean batched = true;
+				int pending = 0;
+				try {
+					for (V value : values) {
+						Class<?> valueType = typeOf.apply(value);
+						if (valueType != type || pending == this.batchSize) {
+							if (statement != null) {
+								if (batched)
+									executeBatch(statement, type, callback);
+								statement.close();
+								statement = null;
+							}
+							type = valueType;
+							batched = returning == null || rows == null || !returning.test(type);
+							pending = 0;
+							statement = this.prepare(connection, sqlOf.apply(type));
+						}
+						this.bindParams(statement, paramsOf.get(value));
+						if (batched) {
+							statement.getStatement().addBatch();
+							pending++;
+						} else {
+							try (ResultSet result = statement.executeQuery()) {
+								rows.returned(result);
+							}
+						}
+					}
+					if (statement != null && batched)
+						executeBatch(statement, type, callback);
+				} finally {
+					if (statement != null)
+						statement.close();
+				}
+			} catch (SQLException | ReflectiveOperationException e) {
+				throw new DatabaseException(e);
+			}
+		});
+	}
+
+	private static void executeBatch(@NotNull PooledStatement statement, @NotNull Class<?> type, @Nullable BatchCallback callback) throws SQLException {
+		int[] counts = statement.getStatement().executeBatch();
+		if (callback != null)
+			callback.executed(type, counts);
+	}
+
+	private static @NotNull Object @NotNull[] explodeInsert(@NotNull Object value) throws ReflectiveOperationException {
+		return explode(value, !EntitiesFactory.table(value.getClass()).getPrimaryKey().isAutoIncrement());
+	}
+
 	private static @NotNull Object @NotNull[] explode(@NotNull Object value, boolean includePrimaries) throws ReflectiveOperationException {
 		TableEntity table = EntitiesFactory.table(value.getClass());
+		EntityMapper mapper = table.getMapper();
 		int size = table.size();
 		if (!includePrimaries)
 			size -= table.getPrimaryKey().size();
@@ -258,15 +1318,18 @@ public class Database {
 		int i = 0;
 		for (ColumnEntity column : table) {
 			if (includePrimaries || !column.isPrimary()) {
-				Field field = column.getField();
-				field.setAccessible(true);
-				Object obj = field.get(value);
-				if (column.isForeign()) {
+				Object obj = mapper.get(column, value);
+				if (obj != null && column.isForeign()) {
 					ForeignKeyEntity foreignKey = table.getForeignKeys().get(column);
-					if (foreignKey != null && foreignKey.isDeepFetch()) {
-						Field foreignField = foreignKey.getReference().getField();
-						foreignField.setAccessible(true);
-						obj = foreignField.get(obj);
+					if (foreignKey != null && foreignKey.isDeepFetch())
+						obj = foreignKey.getTable().getMapper().get(foreignKey.getReference(), obj);
+					else if (foreignKey != null && foreignKey.isLazyFetch()) {
+						LazyReference<?> reference = (LazyReference<?>) obj;
+						obj = reference.getKey();
+						if (obj == null && reference.isLoaded()) {
+							Object entity = reference.get();
+							obj = entity == null ? null : foreignKey.getTable().getMapper().get(foreignKey.getReference(), entity);
+						}
 					}
 				}
 				params[i++] = obj;
@@ -276,87 +1339,96 @@ public class Database {
 	}
 
 	public boolean delete(@NotNull Class<?> type, @NotNull Object @NotNull... id) throws DatabaseException {
-		this.execute(SQL_DELETE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlDeleteQuery), id);
-		return this.getValueOrDefault(int.class, 0, "SELECT changes() AS count") > 0;
+		int count = this.executeUpdate(SQL_DELETE_REQUESTS_CACHE.computeIfAbsent(type, Database::buildSqlDeleteQuery), id);
+		this.invalidateQueries(type);
+		EntityCache cache = this.getEntityCache(type);
+		if (cache != null)
+			this.invalidate(cache, cacheKey(EntitiesFactory.table(type), id));
+		return count > 0;
 	}
 
-	private <T> @NotNull T bind(@NotNull Class<T> type, @NotNull ResultSet result) throws DatabaseException {
-		return this.bind(type, result, "");
+	private <T> @NotNull BindingPlan plan(@NotNull Class<T> type, @Nullable CompiledQuery<T> compiled, @NotNull ResultSet result) throws DatabaseException {
+		return compiled == null ? this.plan(type, result) : compiled.plan(result);
 	}
 
-	private <T> @NotNull T bind(@NotNull Class<T> type, @NotNull ResultSet result, @NotNull String prefix) throws DatabaseException {
+	/* package-private */ @NotNull BindingPlan plan(@NotNull Class<?> type, @NotNull ResultSet result) throws DatabaseException {
 		try {
-			T object = type.getConstructor().newInstance();
-			TableEntity table = EntitiesFactory.table(type);
-			for (ColumnEntity column : table) {
-				Field field = column.getField();
-				field.setAccessible(true);
-				String name = prefix + column.getName();
-				try {
-					result.findColumn(name);
-				} catch (SQLException e) {
-					if (this.logLevel != null)
-						LOGGER.log(this.logLevel, "Ignoring column: " + name + " (not found in result set)");
+			String[] labels = BindingPlan.labels(result.getMetaData());
+			return this.bindingPlans.computeIfAbsent(new BindingPlan.Key(type, labels), key -> BindingPlan.create(type, labels, this));
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	/* package-private */ void logIgnoredColumn(@NotNull String name) {
+		if (this.logLevel != null)
+			LOGGER.log(this.logLevel, "Ignoring column: " + name + " (not found in result set)");
+	}
+
+	private <T> @NotNull T bind(@NotNull Class<T> type, @NotNull BindingPlan plan, @NotNull ResultSet result, @NotNull ReferenceBatch batch) throws DatabaseException {
+		try {
+			EntityMapper mapper = plan.getTable().getMapper();
+			// Constructor bound types are created once all values are read
+			Object[] arguments = mapper.isConstructorBound() ? mapper.newArguments() : null;
+			T object = arguments == null ? type.cast(mapper.newInstance()) : null;
+			for (int i = 0; i < plan.size(); i++) {
+				int ordinal = plan.getOrdinal(i);
+				if (ordinal < 0)
 					continue;
-				}
+				ColumnEntity column = plan.getColumn(i);
 				Class<?> fieldType = column.getType();
+				BindingPlan nested = plan.getNested(i);
+				ForeignKeyEntity lazy = plan.getLazy(i);
 				Object value;
-				if (column.isForeign() && table.getForeignKeys().get(column).isDeepFetch())
-					value = this.bind(fieldType, result, name + BIND_RECURSION_SEPARATOR);
+				if (nested != null)
+					value = this.bind(fieldType, nested, result, batch);
 				else {
-					value = getResultObject(fieldType, result, name);
-					if (result.wasNull() && !fieldType.isPrimitive())
-						value = null;
+					value = column.getCodec().read(result, ordinal);
+					if (lazy != null && value != null)
+						value = batch.reference(lazy, value);
 				}
-				field.set(object, value);
+				if (arguments == null)
+					mapper.set(column, object, value);
+				else
+					arguments[column.getIndex()] = value;
 			}
+			if (arguments != null)
+				object = type.cast(mapper.construct(arguments));
+			if (this.dirtyTracking)
+				this.snapshots.put(object, explode(object, true));
 			return object;
-		} catch (IllegalStateException | IllegalArgumentException | ReflectiveOperationException | SQLException e) {
+		} catch (IllegalStateException | IllegalArgumentException | ClassCastException | ReflectiveOperationException | SQLException e) {
 			throw new DatabaseException(e);
 		}
 	}
 
-	private static @Nullable Object getResultObject(@NotNull Class<?> type, @NotNull ResultSet result, @NotNull String name) throws SQLException {
-		if (type == void.class || type == Void.class)
-			return null;
-		if (type == boolean.class || type == Boolean.class)
-			return result.getBoolean(name);
+	@FunctionalInterface
+	private interface BatchParams<V> {
+		@Nullable Object @NotNull[] get(@NotNull V value) throws ReflectiveOperationException;
+	}
+
+	@FunctionalInterface
+	private interface BatchCallback {
+		void executed(@NotNull Class<?> type, int @NotNull[] counts) throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface RowCallback {
+		void returned(@NotNull ResultSet result) throws SQLException;
+	}
+
+	/* package-private */ static @NotNull Object castKey(@NotNull Class<?> type, long key) {
 		if (type == byte.class || type == Byte.class)
-			return result.getByte(name);
+			return (byte) key;
 		if (type == short.class || type == Short.class)
-			return result.getShort(name);
+			return (short) key;
 		if (type == int.class || type == Integer.class)
-			return result.getInt(name);
-		if (type == long.class || type == Long.class)
-			return result.getLong(name);
-		if (type == float.class || type == Float.class)
-			return result.getFloat(name);
-		if (type == double.class || type == Double.class)
-			return result.getDouble(name);
-		if (type == char.class || type == Character.class) {
-			String str = result.getString(name);
-			return str == null || str.isEmpty() ? 0 : str.charAt(0);
-		}
-		if (type == String.class)
-			return result.getString(name);
-		if (type == Date.class)
-			return result.getDate(name);
-		if (type == Time.class)
-			return result.getTime(name);
-		if (type == Timestamp.class) {
-			try {
-				return result.getTimestamp(name);
-			} catch (SQLException e) {
-				return Timestamp.from(Instant.ofEpochMilli(result.getLong(name)));
-			}
-		}
+			return (int) key;
+		if (type == BigInteger.class)
+			return BigInteger.valueOf(key);
 		if (type == BigDecimal.class)
-			return result.getBigDecimal(name);
-		try {
-			return result.getObject(name, type);
-		} catch (SQLException e) {
-			return null;
-		}
+			return BigDecimal.valueOf(key);
+		return key;
 	}
 
 	private static @NotNull String buildSqlCreateTableQuery(@NotNull Class<?> type) {
@@ -379,23 +1451,37 @@ public class Database {
 		return SQLBuilder.select().from(EntitiesFactory.table(type).getName()).value(SQLValue.COUNT_ALL).build();
 	}
 
+	private static @NotNull String buildSqlCountWhereQuery(@NotNull Class<?> type, @Nullable SQLConditionBuilder where) {
+		return SQLBuilder.select().from(EntitiesFactory.table(type).getName()).value(SQLValue.COUNT_ALL).where(where).build();
+	}
+
 	private static @NotNull String buildSqlAddQuery(@NotNull Class<?> type) {
 		return EntitiesFactory.table(type).insert().build();
 	}
 
+	private static @NotNull String buildSqlAddReturningQuery(@NotNull Class<?> type) {
+		TableEntity table = EntitiesFactory.table(type);
+		PrimaryKeyEntity primaryKey = table.getPrimaryKey();
+		return table.insert().returning(primaryKey.isAutoIncrement() ? primaryKey.iterator().next().getName() : "rowid").build();
+	}
+
 	private static @NotNull String buildSqlSetQuery(@NotNull Class<?> type) {
 		return EntitiesFactory.table(type).upsert().build();
 	}
 
+	private static @NotNull String buildSqlUpdateQuery(@NotNull TableEntity table, @NotNull BitSet columns) {
+		SQLUpdateBuilder builder = SQLBuilder.update().table(table.getName());
+		for (ColumnEntity column : table)
+			if (columns.get(column.getIndex()))
+				builder.set(column.getName(), SQLValue.PLACEHOLDER);
+		return builder.where(table.getPrimaryKey().condition()).build();
+	}
+
 	private static @NotNull String buildSqlDeleteQuery(@NotNull Class<?> type) {
 		return EntitiesFactory.table(type).delete().build();
 	}
 
 	public boolean isRunning() {
-		try {
-			return this.connection != null && this.connection.isValid(0);
-		} catch (SQLException e) {
-			return false;
-		}
+		return this.pool.isRunning();
 	}
 }
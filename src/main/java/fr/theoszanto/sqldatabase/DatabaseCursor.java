@@ -0,0 +1,119 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.connection.PooledStatement;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator over the rows of a live result set, binding one entity at a time.
+ *
+ * <p>The statement is only executed on the first call to {@link #hasNext()}
+ * (or {@link #next()}). The underlying connection is held until the cursor is
+ * exhausted or closed, so a cursor (or the stream built from it) which is not
+ * fully consumed must be closed.</p>
+ */
+public class DatabaseCursor<T> implements Iterator<@NotNull T>, AutoCloseable {
+	private final @NotNull Opener opener;
+	private final @NotNull RowMapper<T> mapper;
+	private int fetchSize;
+	private @Nullable PooledStatement statement;
+	private @Nullable ResultSet result;
+	private boolean closed = false;
+	private boolean ready = false;
+
+	/* package-private */ DatabaseCursor(@NotNull Opener opener, @NotNull RowMapper<T> mapper, int fetchSize) {
+		this.opener = opener;
+		this.mapper = mapper;
+		this.fetchSize = fetchSize;
+	}
+
+	@Contract(pure = true)
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull DatabaseCursor<T> fetchSize(int fetchSize) {
+		if (fetchSize < 0)
+			throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+		if (this.statement != null || this.closed)
+			throw new IllegalStateException("Cannot change the fetch size of an already executed cursor");
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() throws DatabaseException {
+		if (this.closed)
+			return false;
+		if (this.ready)
+			return true;
+		try {
+			if (this.result == null) {
+				this.statement = this.opener.open();
+				this.statement.getStatement().setFetchSize(this.fetchSize);
+				this.result = this.statement.executeQuery();
+			}
+			this.ready = this.result.next();
+		} catch (SQLException | RuntimeException e) {
+			this.close();
+			throw e instanceof DatabaseException ? (DatabaseException) e : new DatabaseException(e);
+		}
+		if (!this.ready)
+			this.close();
+		return this.ready;
+	}
+
+	@Override
+	public @NotNull T next() throws DatabaseException {
+		if (!this.hasNext())
+			throw new NoSuchElementException();
+		this.ready = false;
+		assert this.result != null;
+		return this.mapper.map(this.result);
+	}
+
+	@Contract(value = " -> new", pure = true)
+	public @NotNull Stream<@NotNull T> stream() {
+		Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	@Override
+	public void close() {
+		if (this.closed)
+			return;
+		this.closed = true;
+		this.ready = false;
+		this.result = null;
+		PooledStatement statement = this.statement;
+		this.statement = null;
+		if (statement != null) {
+			try {
+				statement.getStatement().setFetchSize(0);
+			} catch (SQLException ignored) {}
+			statement.close();
+			statement.getConnection().close();
+		}
+	}
+
+	@FunctionalInterface
+	/* package-private */ interface Opener {
+		@NotNull PooledStatement open() throws DatabaseException;
+	}
+
+	@FunctionalInterface
+	/* package-private */ interface RowMapper<T> {
+		@NotNull T map(@NotNull ResultSet result) throws DatabaseException;
+	}
+}
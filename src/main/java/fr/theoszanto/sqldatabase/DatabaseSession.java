@@ -0,0 +1,265 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.entities.ColumnEntity;
+import fr.theoszanto.sqldatabase.entities.EntitiesFactory;
+import fr.theoszanto.sqldatabase.entities.EntityMapper;
+import fr.theoszanto.sqldatabase.entities.PrimaryKeyEntity;
+import fr.theoszanto.sqldatabase.entities.TableEntity;
+import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLConditionBuilder;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit of work over a {@link Database}: entities read through a session are
+ * kept in an identity map by table and primary key, so that reading the same
+ * row twice returns the same instance without querying it again, and writes
+ * are queued until {@link #commit()}, which executes them as batches within a
+ * single transaction.
+ *
+ * <p>A session is not thread-safe and is meant to be short-lived, such as one
+ * per request. Closing a session discards its pending writes.</p>
+ */
+public class DatabaseSession implements AutoCloseable {
+	private final @NotNull Database database;
+	private final @NotNull Map<@NotNull TableEntity, @NotNull Map<@NotNull Object, @NotNull Object>> identityMap = new HashMap<>();
+	private final @NotNull List<@NotNull Operation> pending = new ArrayList<>();
+
+	/* package-private */ DatabaseSession(@NotNull Database database) {
+		this.database = database;
+	}
+
+	@Contract(pure = true)
+	public @NotNull Database getDatabase() {
+		return this.database;
+	}
+
+	public <T> @Nullable T get(@NotNull Class<T> type, @NotNull Object @NotNull... id) throws DatabaseException {
+		TableEntity table = EntitiesFactory.table(type);
+		Object entity = this.entities(table).get(Database.cacheKey(table, id));
+		if (entity != null)
+			return type.cast(entity);
+		T value = this.database.get(type, id);
+		return value == null ? null : this.attach(table, value);
+	}
+
+	/**
+	 * @see Database#getAllAsMap(Class, Collection)
+	 */
+	public <T> @NotNull Map<@NotNull Object, @NotNull T> getAllAsMap(@NotNull Class<T> type, @NotNull Collection<?> ids) throws DatabaseException {
+		TableEntity table = EntitiesFactory.table(type);
+		Map<Object, Object> entities = this.entities(table);
+		List<Object> missing = new ArrayList<>();
+		for (Object id : ids)
+			if (!entities.containsKey(idKey(table, id)))
+				missing.add(id);
+		if (!missing.isEmpty())
+			for (T value : this.database.getAll(type, missing))
+				this.attach(table, value);
+		Map<Object, T> result = new LinkedHashMap<>();
+		for (Object id : ids) {
+			Object entity = entities.get(idKey(table, id));
+			if (entity != null)
+				result.put(id instanceof Object[] ? Arrays.asList((Object[]) id) : id, type.cast(entity));
+		}
+		return result;
+	}
+
+	public <T> @NotNull List<@NotNull T> list(@NotNull Class<T> type) throws DatabaseException {
+		return this.attachAll(type, this.database.list(type));
+	}
+
+	public <T> @NotNull List<@NotNull T> listWhere(@NotNull Class<T> type, @Nullable SQLConditionBuilder where, @NotNull Object @NotNull... params) throws DatabaseException {
+		return this.attachAll(type, this.database.listWhere(type, where, params));
+	}
+
+	/**
+	 * List the entities returned by the given query, replacing the rows which
+	 * were already read by their instance.
+	 */
+	public <T> @NotNull List<@NotNull T> listSql(@NotNull Class<T> type, @NotNull String sql, @Nullable Object @NotNull... params) throws DatabaseException {
+		return this.attachAll(type, this.database.listSql(type, sql, params));
+	}
+
+	/**
+	 * Queue the insertion of the given entity. Its auto-increment primary key
+	 * is written back on commit, unless it is constructor bound.
+	 */
+	public void add(@NotNull Object value) {
+		this.pending.add(new Operation(OperationType.ADD, value));
+	}
+
+	public void set(@NotNull Object value) {
+		this.pending.add(new Operation(OperationType.SET, value));
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		try {
+			this.entities(table).put(key(table, value), value);
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	public void delete(@NotNull Object value) {
+		this.pending.add(new Operation(OperationType.DELETE, value));
+		this.evict(value);
+	}
+
+	@Contract(pure = true)
+	public boolean contains(@NotNull Object value) {
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		Map<Object, Object> entities = this.identityMap.get(table);
+		try {
+			return entities != null && entities.get(key(table, value)) == value;
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	public void evict(@NotNull Object value) {
+		TableEntity table = EntitiesFactory.table(value.getClass());
+		try {
+			this.entities(table).remove(key(table, value), value);
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	@Contract(pure = true)
+	public int getPendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Execute the pending writes, in order, within a single transaction,
+	 * batching consecutive writes of the same kind and type.
+	 */
+	public void commit() throws DatabaseException {
+		if (this.pending.isEmpty())
+			return;
+		this.database.inTransaction(Transaction.Mode.IMMEDIATE, transaction -> {
+			int from = 0;
+			while (from < this.pending.size()) {
+				Operation first = this.pending.get(from);
+				int to = from + 1;
+				while (to < this.pending.size() && this.pending.get(to).type == first.type && this.pending.get(to).value.getClass() == first.value.getClass())
+					to++;
+				this.execute(first.type, first.value.getClass(), this.pending.subList(from, to));
+				from = to;
+			}
+		});
+		this.pending.clear();
+	}
+
+	/**
+	 * Discard the pending writes and the identity map.
+	 */
+	public void clear() {
+		this.pending.clear();
+		this.identityMap.clear();
+	}
+
+	@Override
+	public void close() {
+		this.clear();
+	}
+
+	private void execute(@NotNull OperationType type, @NotNull Class<?> valueType, @NotNull List<@NotNull Operation> operations) throws DatabaseException {
+		List<Object> values = new ArrayList<>(operations.size());
+		for (Operation operation : operations)
+			values.add(operation.value);
+		TableEntity table = EntitiesFactory.table(valueType);
+		try {
+			switch (type) {
+			case ADD:
+				long[] keys = this.database.addAll(values);
+				EntityMapper mapper = table.getMapper();
+				if (keys.length == values.size() && !mapper.isConstructorBound()) {
+					ColumnEntity column = table.getPrimaryKey().iterator().next();
+					for (int i = 0; i < keys.length; i++)
+						mapper.set(column, values.get(i), Database.castKey(column.getType(), keys[i]));
+				}
+				for (Object value : values)
+					this.entities(table).put(key(table, value), value);
+				break;
+			case SET:
+				this.database.setAll(values);
+				break;
+			case DELETE:
+				List<Object> ids = new ArrayList<>(values.size());
+				for (Object value : values) {
+					Object key = key(table, value);
+					ids.add(key instanceof List<?> ? ((List<?>) key).toArray() : key);
+				}
+				this.database.deleteAll(valueType, ids);
+				break;
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	private <T> @NotNull List<@NotNull T> attachAll(@NotNull Class<T> type, @NotNull List<@NotNull T> values) throws DatabaseException {
+		TableEntity table = EntitiesFactory.table(type);
+		values.replaceAll(value -> this.attach(table, value));
+		return values;
+	}
+
+	private <T> @NotNull T attach(@NotNull TableEntity table, @NotNull T value) throws DatabaseException {
+		try {
+			Object existing = this.entities(table).putIfAbsent(key(table, value), value);
+			@SuppressWarnings("unchecked")
+			T entity = existing == null ? value : (T) existing;
+			return entity;
+		} catch (ReflectiveOperationException e) {
+			throw new DatabaseException(e);
+		}
+	}
+
+	private @NotNull Map<@NotNull Object, @NotNull Object> entities(@NotNull TableEntity table) {
+		return this.identityMap.computeIfAbsent(table, t -> new HashMap<>());
+	}
+
+	/**
+	 * Get the identity map key of the given requested primary key, given as
+	 * {@code Object[]} for multi-column keys.
+	 */
+	private static @NotNull Object idKey(@NotNull TableEntity table, @NotNull Object id) {
+		return Database.cacheKey(table, id instanceof Object[] ? (Object[]) id : new Object[] { id });
+	}
+
+	private static @NotNull Object key(@NotNull TableEntity table, @NotNull Object value) throws ReflectiveOperationException {
+		PrimaryKeyEntity primaryKey = table.getPrimaryKey();
+		EntityMapper mapper = table.getMapper();
+		if (primaryKey.size() == 1)
+			return mapper.get(primaryKey.iterator().next(), value);
+		Object[] key = new Object[primaryKey.size()];
+		int i = 0;
+		for (ColumnEntity column : primaryKey)
+			key[i++] = mapper.get(column, value);
+		return Arrays.asList(key);
+	}
+
+	private enum OperationType {
+		ADD,
+		SET,
+		DELETE
+	}
+
+	private static class Operation {
+		private final @NotNull OperationType type;
+		private final @NotNull Object value;
+
+		private Operation(@NotNull OperationType type, @NotNull Object value) {
+			this.type = type;
+			this.value = value;
+		}
+	}
+}
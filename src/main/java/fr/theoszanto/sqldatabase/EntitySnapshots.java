@@ -0,0 +1,66 @@
+package fr.theoszanto.sqldatabase;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column values of entities as they were last read from or written to the
+ * database, by entity identity. Entities are weakly referenced, so tracking
+ * them does not prevent their garbage collection.
+ */
+/* package-private */ class EntitySnapshots {
+	private final @NotNull Map<@NotNull Key, @Nullable Object @NotNull[]> snapshots = new ConcurrentHashMap<>();
+	private final @NotNull ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	public @Nullable Object @Nullable[] get(@NotNull Object entity) {
+		return this.snapshots.get(new Key(entity, null));
+	}
+
+	public void put(@NotNull Object entity, @Nullable Object @NotNull[] values) {
+		this.expunge();
+		this.snapshots.put(new Key(entity, this.queue), values);
+	}
+
+	public void remove(@NotNull Object entity) {
+		this.snapshots.remove(new Key(entity, null));
+	}
+
+	public int size() {
+		this.expunge();
+		return this.snapshots.size();
+	}
+
+	private void expunge() {
+		Reference<?> reference;
+		while ((reference = this.queue.poll()) != null)
+			this.snapshots.remove(reference);
+	}
+
+	private static class Key extends WeakReference<Object> {
+		private final int hash;
+
+		private Key(@NotNull Object entity, @Nullable ReferenceQueue<Object> queue) {
+			super(entity, queue);
+			this.hash = System.identityHashCode(entity);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Object entity = this.get();
+			return entity != null && entity == ((Key) o).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
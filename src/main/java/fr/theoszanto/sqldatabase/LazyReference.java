@@ -0,0 +1,90 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.entities.ForeignKeyEntity;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Value of a {@link fr.theoszanto.sqldatabase.annotations.DatabaseForeignKey.FetchMode#LAZY
+ * lazy} foreign key: only the key is read with the entity, and the referenced
+ * entity is resolved on the first call to {@link #get()}, together with all
+ * the other references bound by the same query.
+ */
+public class LazyReference<T> {
+	private final @Nullable Object key;
+	private final @Nullable ReferenceBatch batch;
+	private final @Nullable ForeignKeyEntity foreignKey;
+	private volatile boolean loaded;
+	private volatile @Nullable T value;
+
+	private LazyReference(@Nullable Object key, @Nullable ReferenceBatch batch, @Nullable ForeignKeyEntity foreignKey, boolean loaded, @Nullable T value) {
+		this.key = key;
+		this.batch = batch;
+		this.foreignKey = foreignKey;
+		this.loaded = loaded;
+		this.value = value;
+	}
+
+	/* package-private */ LazyReference(@NotNull Object key, @NotNull ReferenceBatch batch, @NotNull ForeignKeyEntity foreignKey) {
+		this(key, batch, foreignKey, false, null);
+	}
+
+	/**
+	 * Create an already loaded reference to the given entity.
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public static <T> @NotNull LazyReference<T> of(@NotNull T entity) {
+		return new LazyReference<>(null, null, null, true, entity);
+	}
+
+	/**
+	 * Create a reference to the entity with the given key, which can be
+	 * written but not resolved.
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public static <T> @NotNull LazyReference<T> ofKey(@NotNull Object key) {
+		return new LazyReference<>(key, null, null, false, null);
+	}
+
+	/**
+	 * Get the referenced key, or {@code null} if this reference was created
+	 * from an entity.
+	 */
+	@Contract(pure = true)
+	public @Nullable Object getKey() {
+		return this.key;
+	}
+
+	@Contract(pure = true)
+	public boolean isLoaded() {
+		return this.loaded;
+	}
+
+	/**
+	 * Get the referenced entity, loading it if needed.
+	 *
+	 * @return The referenced entity, or {@code null} if it does not exist
+	 * @throws IllegalStateException If this reference was not read from a database
+	 */
+	public @Nullable T get() throws DatabaseException {
+		if (!this.loaded) {
+			if (this.batch == null || this.foreignKey == null)
+				throw new IllegalStateException("Cannot resolve a reference which was not read from a database");
+			this.batch.load(this.foreignKey);
+		}
+		return this.value;
+	}
+
+	/* package-private */ void resolve(@Nullable Object value) {
+		@SuppressWarnings("unchecked")
+		T entity = (T) value;
+		this.value = entity;
+		this.loaded = true;
+	}
+
+	@Override
+	public @NotNull String toString() {
+		return "LazyReference(" + (this.loaded ? this.value : this.key) + ")";
+	}
+}
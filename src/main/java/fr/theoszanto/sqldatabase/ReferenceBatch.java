@@ -0,0 +1,56 @@
+package fr.theoszanto.sqldatabase;
+
+import fr.theoszanto.sqldatabase.entities.EntityMapper;
+import fr.theoszanto.sqldatabase.entities.ForeignKeyEntity;
+import fr.theoszanto.sqldatabase.entities.TableEntity;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lazy references bound by a single query, grouped by foreign key so that
+ * resolving one of them resolves all the others with as few queries as
+ * possible.
+ */
+/* package-private */ class ReferenceBatch {
+	private final @NotNull Database database;
+	private final @NotNull Map<@NotNull ForeignKeyEntity, @NotNull List<@NotNull LazyReference<?>>> pending = new HashMap<>();
+
+	public ReferenceBatch(@NotNull Database database) {
+		this.database = database;
+	}
+
+	public synchronized @NotNull LazyReference<?> reference(@NotNull ForeignKeyEntity foreignKey, @NotNull Object key) {
+		LazyReference<?> reference = new LazyReference<>(key, this, foreignKey);
+		this.pending.computeIfAbsent(foreignKey, k -> new ArrayList<>()).add(reference);
+		return reference;
+	}
+
+	public synchronized void load(@NotNull ForeignKeyEntity foreignKey) throws DatabaseException {
+		List<LazyReference<?>> references = this.pending.remove(foreignKey);
+		if (references == null)
+			return;
+		Set<Object> keys = new LinkedHashSet<>();
+		for (LazyReference<?> reference : references)
+			if (!reference.isLoaded())
+				keys.add(reference.getKey());
+		TableEntity table = foreignKey.getTable();
+		EntityMapper mapper = table.getMapper();
+		Map<Object, Object> entities = new HashMap<>();
+		try {
+			for (Object entity : this.database.listIn(table.getType(), foreignKey.getReference(), keys))
+				entities.put(mapper.get(foreignKey.getReference(), entity), entity);
+		} catch (ReflectiveOperationException | DatabaseException e) {
+			this.pending.put(foreignKey, references);
+			throw e instanceof DatabaseException ? (DatabaseException) e : new DatabaseException(e);
+		}
+		for (LazyReference<?> reference : references)
+			if (!reference.isLoaded())
+				reference.resolve(entities.get(reference.getKey()));
+	}
+}
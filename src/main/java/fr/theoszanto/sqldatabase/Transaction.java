@@ -0,0 +1,127 @@
+package fr.theoszanto.sqldatabase;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Transaction {
+	private final @NotNull Database database;
+	private final @NotNull Mode mode;
+	private final @Nullable Transaction parent;
+	private final int depth;
+	private boolean rollbackOnly = false;
+	private @Nullable List<@NotNull Runnable> completionActions;
+
+	/* package-private */ Transaction(@NotNull Database database, @NotNull Mode mode, @Nullable Transaction parent) {
+		this.database = database;
+		this.mode = mode;
+		this.parent = parent;
+		this.depth = parent == null ? 0 : parent.depth + 1;
+	}
+
+	@Contract(pure = true)
+	public @NotNull Database getDatabase() {
+		return this.database;
+	}
+
+	@Contract(pure = true)
+	public @NotNull Mode getMode() {
+		return this.mode;
+	}
+
+	@Contract(pure = true)
+	public @Nullable Transaction getParent() {
+		return this.parent;
+	}
+
+	@Contract(pure = true)
+	public int getDepth() {
+		return this.depth;
+	}
+
+	@Contract(pure = true)
+	public boolean isSavepoint() {
+		return this.parent != null;
+	}
+
+	@Contract(pure = true)
+	public boolean isRollbackOnly() {
+		return this.rollbackOnly;
+	}
+
+	/**
+	 * Roll back this transaction (or savepoint) instead of committing it once
+	 * its scope ends normally.
+	 */
+	@Contract(mutates = "this")
+	public void setRollbackOnly() {
+		this.rollbackOnly = true;
+	}
+
+	/**
+	 * Register an action to run once the outermost transaction is either
+	 * committed or rolled back.
+	 */
+	/* package-private */ void afterCompletion(@NotNull Runnable action) {
+		Transaction root = this;
+		while (root.parent != null)
+			root = root.parent;
+		if (root.completionActions == null)
+			root.completionActions = new ArrayList<>();
+		root.completionActions.add(action);
+	}
+
+	/* package-private */ void completed() {
+		List<Runnable> actions = this.completionActions;
+		this.completionActions = null;
+		if (actions != null)
+			for (Runnable action : actions)
+				action.run();
+	}
+
+	public void savepoint(@NotNull Action action) throws DatabaseException {
+		this.database.inTransaction(this.mode, action);
+	}
+
+	public <R> R computeSavepoint(@NotNull Computation<R> computation) throws DatabaseException {
+		return this.database.computeInTransaction(this.mode, computation);
+	}
+
+	/* package-private */ @NotNull String begin() {
+		return this.parent == null ? "BEGIN " + this.mode.name() : "SAVEPOINT " + this.savepointName();
+	}
+
+	/* package-private */ @NotNull String commit() {
+		return this.parent == null ? "COMMIT" : "RELEASE " + this.savepointName();
+	}
+
+	/* package-private */ @NotNull String @NotNull[] rollback() {
+		if (this.parent == null)
+			return new String[] { "ROLLBACK" };
+		String savepoint = this.savepointName();
+		return new String[] { "ROLLBACK TO " + savepoint, "RELEASE " + savepoint };
+	}
+
+	private @NotNull String savepointName() {
+		return "sp_" + this.depth;
+	}
+
+	public enum Mode {
+		DEFERRED,
+		IMMEDIATE,
+		EXCLUSIVE
+	}
+
+	@FunctionalInterface
+	public interface Action {
+		void run(@NotNull Transaction transaction) throws DatabaseException;
+	}
+
+	@FunctionalInterface
+	public interface Computation<R> {
+		R compute(@NotNull Transaction transaction) throws DatabaseException;
+	}
+}
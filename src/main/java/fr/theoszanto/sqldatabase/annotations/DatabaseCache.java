@@ -0,0 +1,42 @@
+package fr.theoszanto.sqldatabase.annotations;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Cache the entities of the annotated table read by primary key, within each
+ * database. Cached instances are shared and must not be modified.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DatabaseCache {
+	/**
+	 * Maximum number of cached entities.
+	 */
+	int capacity() default 1000;
+
+	/**
+	 * Time to live of cached entities, in milliseconds, or {@code 0} to keep
+	 * them until evicted or invalidated.
+	 */
+	long ttl() default 0;
+
+	@NotNull EvictionPolicy eviction() default EvictionPolicy.LRU;
+
+	enum EvictionPolicy {
+		/**
+		 * Evict the least recently read entity.
+		 */
+		LRU,
+		/**
+		 * Evict the least recently cached entity.
+		 */
+		FIFO
+	}
+}
@@ -0,0 +1,17 @@
+package fr.theoszanto.sqldatabase.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Bind rows through the annotated constructor instead of the no-arg one,
+ * allowing final fields to be columns. The constructor parameters must match
+ * the columns of the table, in fields declaration order.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface DatabaseConstructor {}
@@ -15,4 +15,16 @@ public @interface DatabaseForeignKey {
 	@NotNull String value() default "";
 
 	@NotNull Class<?> table() default Object.class;
+
+	/**
+	 * How the referenced entity is fetched. {@link FetchMode#LAZY} foreign keys
+	 * must be declared as {@link fr.theoszanto.sqldatabase.LazyReference}, the
+	 * referenced table type being either {@link #table()} or its type argument.
+	 */
+	@NotNull FetchMode fetch() default FetchMode.EAGER;
+
+	enum FetchMode {
+		EAGER,
+		LAZY
+	}
 }
@@ -0,0 +1,224 @@
+package fr.theoszanto.sqldatabase.cache;
+
+import fr.theoszanto.sqldatabase.annotations.DatabaseCache;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of entities by key, split into independently locked segments
+ * to limit contention, each evicting its entries according to the
+ * {@link DatabaseCache.EvictionPolicy eviction policy} once full.
+ *
+ * <p>Values loaded concurrently with an invalidation must be cached with the
+ * {@link #getStamp() stamp} read before loading them, so that they are
+ * dropped instead of caching stale values.</p>
+ */
+public class EntityCache {
+	private static final int MAX_SEGMENTS = 16;
+
+	private final int capacity;
+	private final long ttl;
+	private final @NotNull DatabaseCache.EvictionPolicy eviction;
+	private final @NotNull Segment @NotNull[] segments;
+	private final @NotNull AtomicLong stamp = new AtomicLong();
+	private final @NotNull LongAdder hits = new LongAdder();
+	private final @NotNull LongAdder misses = new LongAdder();
+	private final @NotNull LongAdder evictions = new LongAdder();
+	private final @NotNull LongAdder expirations = new LongAdder();
+	private final @NotNull LongAdder invalidations = new LongAdder();
+
+	public EntityCache(@NotNull DatabaseCache descriptor) {
+		this(descriptor.capacity(), descriptor.ttl(), descriptor.eviction());
+	}
+
+	/**
+	 * @param ttl Time to live of the entries, in milliseconds, or {@code 0}
+	 */
+	public EntityCache(int capacity, long ttl, @NotNull DatabaseCache.EvictionPolicy eviction) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+		if (ttl < 0)
+			throw new IllegalArgumentException("Invalid cache TTL: " + ttl);
+		this.capacity = capacity;
+		this.ttl = ttl;
+		this.eviction = eviction;
+		// Keep segments of at least 16 entries so that eviction stays close to the policy
+		int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / 16)));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++)
+			this.segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+	}
+
+	@Contract(pure = true)
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	@Contract(pure = true)
+	public long getTtl() {
+		return this.ttl;
+	}
+
+	@Contract(pure = true)
+	public @NotNull DatabaseCache.EvictionPolicy getEviction() {
+		return this.eviction;
+	}
+
+	public @Nullable Object get(@NotNull Object key) {
+		Object value = this.segment(key).get(key);
+		if (value == null)
+			this.misses.increment();
+		else
+			this.hits.increment();
+		return value;
+	}
+
+	/**
+	 * Get the current invalidation stamp, to be given to
+	 * {@link #put(Object, Object, long)}.
+	 */
+	@Contract(pure = true)
+	public long getStamp() {
+		return this.stamp.get();
+	}
+
+	/**
+	 * Cache the given value, unless an invalidation happened since the given
+	 * stamp was read.
+	 *
+	 * @return Whether the value was cached
+	 */
+	public boolean put(@NotNull Object key, @NotNull Object value, long stamp) {
+		return this.segment(key).put(key, value, stamp);
+	}
+
+	public void remove(@NotNull Object key) {
+		this.segment(key).remove(key);
+		this.invalidations.increment();
+	}
+
+	public void clear() {
+		for (Segment segment : this.segments)
+			segment.clear();
+		this.invalidations.increment();
+	}
+
+	@Contract(pure = true)
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments)
+			size += segment.size();
+		return size;
+	}
+
+	@Contract(pure = true)
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	@Contract(pure = true)
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Get the ratio of reads which were cache hits, or {@code 0} if nothing
+	 * was read yet.
+	 */
+	@Contract(pure = true)
+	public double getHitRate() {
+		long hits = this.hits.sum();
+		long total = hits + this.misses.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Contract(pure = true)
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	@Contract(pure = true)
+	public long getExpirations() {
+		return this.expirations.sum();
+	}
+
+	@Contract(pure = true)
+	public long getInvalidations() {
+		return this.invalidations.sum();
+	}
+
+	private @NotNull Segment segment(@NotNull Object key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return this.segments[hash & (this.segments.length - 1)];
+	}
+
+	private static class CacheEntry {
+		private final @NotNull Object value;
+		private final long expiresAt;
+
+		private CacheEntry(@NotNull Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private class Segment {
+		private final @NotNull LinkedHashMap<@NotNull Object, @NotNull CacheEntry> entries;
+
+		private Segment(int capacity) {
+			this.entries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, EntityCache.this.eviction == DatabaseCache.EvictionPolicy.LRU) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+					if (this.size() <= capacity)
+						return false;
+					EntityCache.this.evictions.increment();
+					return true;
+				}
+			};
+		}
+
+		private synchronized @Nullable Object get(@NotNull Object key) {
+			CacheEntry entry = this.entries.get(key);
+			if (entry == null)
+				return null;
+			if (entry.expiresAt != 0 && System.nanoTime() - entry.expiresAt >= 0) {
+				this.entries.remove(key);
+				EntityCache.this.expirations.increment();
+				return null;
+			}
+			return entry.value;
+		}
+
+		private synchronized boolean put(@NotNull Object key, @NotNull Object value, long stamp) {
+			// Invalidations lock the segment too, hence cannot happen between this check and the put
+			if (EntityCache.this.stamp.get() != stamp)
+				return false;
+			long ttl = EntityCache.this.ttl;
+			long expiresAt = ttl == 0 ? 0 : System.nanoTime() + ttl * 1_000_000L;
+			// Never use 0 as an actual expiration time
+			this.entries.put(key, new CacheEntry(value, ttl != 0 && expiresAt == 0 ? 1 : expiresAt));
+			return true;
+		}
+
+		private synchronized void remove(@NotNull Object key) {
+			EntityCache.this.stamp.incrementAndGet();
+			this.entries.remove(key);
+		}
+
+		private synchronized void clear() {
+			EntityCache.this.stamp.incrementAndGet();
+			this.entries.clear();
+		}
+
+		private synchronized int size() {
+			return this.entries.size();
+		}
+	}
+}
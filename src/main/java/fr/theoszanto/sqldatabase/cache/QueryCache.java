@@ -0,0 +1,250 @@
+package fr.theoszanto.sqldatabase.cache;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of query results, by SQL text and parameters, indexed by
+ * the tables each query reads so that writing to a table invalidates all the
+ * results depending on it.
+ *
+ * <p>Results loaded concurrently with an invalidation must be cached with the
+ * {@link #getStamp(Collection) stamp} of their tables read before loading
+ * them, so that they are dropped instead of caching stale results.</p>
+ */
+public class QueryCache {
+	private final int capacity;
+	private final long ttl;
+	private final @NotNull LinkedHashMap<@NotNull Key, @NotNull CacheEntry> entries;
+	private final @NotNull Map<@NotNull String, @NotNull Set<@NotNull Key>> keysByTable = new HashMap<>();
+	private final @NotNull Map<@NotNull String, @NotNull Long> stamps = new HashMap<>();
+	// Bumped by clear() so that stamps read before it are stale for any table, even one without cached results
+	private long generation = 0;
+	private final @NotNull LongAdder hits = new LongAdder();
+	private final @NotNull LongAdder misses = new LongAdder();
+	private final @NotNull LongAdder evictions = new LongAdder();
+	private final @NotNull LongAdder expirations = new LongAdder();
+	private final @NotNull LongAdder invalidations = new LongAdder();
+
+	public QueryCache(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * @param ttl Time to live of the entries, in milliseconds, or {@code 0}
+	 */
+	public QueryCache(int capacity, long ttl) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+		if (ttl < 0)
+			throw new IllegalArgumentException("Invalid cache TTL: " + ttl);
+		this.capacity = capacity;
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+				if (this.size() <= QueryCache.this.capacity)
+					return false;
+				QueryCache.this.unindex(eldest.getKey(), eldest.getValue());
+				QueryCache.this.evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	@Contract(pure = true)
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	@Contract(pure = true)
+	public long getTtl() {
+		return this.ttl;
+	}
+
+	/**
+	 * Get the cached result of the given query, or {@code null} if missing.
+	 */
+	public synchronized @Nullable Object get(@NotNull String sql, @Nullable Object @NotNull[] params) {
+		Key key = new Key(sql, params);
+		CacheEntry entry = this.entries.get(key);
+		if (entry != null && entry.expiresAt != 0 && System.nanoTime() - entry.expiresAt >= 0) {
+			this.entries.remove(key);
+			this.unindex(key, entry);
+			this.expirations.increment();
+			entry = null;
+		}
+		if (entry == null) {
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Get the current invalidation stamp of the given tables, to be given to
+	 * {@link #put(String, Object[], Collection, Object, long)}.
+	 */
+	public synchronized long getStamp(@NotNull Collection<@NotNull String> tables) {
+		long stamp = this.generation;
+		for (String table : tables)
+			stamp += this.stamps.getOrDefault(normalize(table), 0L);
+		return stamp;
+	}
+
+	/**
+	 * Cache the result of the given query, reading the given tables, unless
+	 * any of them was invalidated since the given stamp was read.
+	 *
+	 * @return Whether the result was cached
+	 */
+	public synchronized boolean put(@NotNull String sql, @Nullable Object @NotNull[] params, @NotNull Collection<@NotNull String> tables, @NotNull Object value, long stamp) {
+		if (tables.isEmpty())
+			throw new IllegalArgumentException("Cannot cache a query reading no tables");
+		if (this.getStamp(tables) != stamp)
+			return false;
+		Key key = new Key(sql, params.clone());
+		long expiresAt = this.ttl == 0 ? 0 : System.nanoTime() + this.ttl * 1_000_000L;
+		Set<String> names = new HashSet<>();
+		for (String table : tables)
+			names.add(normalize(table));
+		CacheEntry entry = new CacheEntry(value, names, this.ttl != 0 && expiresAt == 0 ? 1 : expiresAt);
+		CacheEntry previous = this.entries.put(key, entry);
+		if (previous != null)
+			this.unindex(key, previous);
+		for (String table : entry.tables)
+			this.keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+		return true;
+	}
+
+	/**
+	 * Drop all the results of queries reading the given table.
+	 */
+	public synchronized void invalidate(@NotNull String table) {
+		table = normalize(table);
+		this.stamps.merge(table, 1L, Long::sum);
+		Set<Key> keys = this.keysByTable.remove(table);
+		if (keys != null)
+			for (Key key : keys) {
+				CacheEntry entry = this.entries.remove(key);
+				if (entry != null)
+					this.unindex(key, entry);
+			}
+		this.invalidations.increment();
+	}
+
+	public synchronized void clear() {
+		this.generation++;
+		this.entries.clear();
+		this.keysByTable.clear();
+		this.invalidations.increment();
+	}
+
+	@Contract(pure = true)
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	@Contract(pure = true)
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	@Contract(pure = true)
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Get the ratio of reads which were cache hits, or {@code 0} if nothing
+	 * was read yet.
+	 */
+	@Contract(pure = true)
+	public double getHitRate() {
+		long hits = this.hits.sum();
+		long total = hits + this.misses.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Contract(pure = true)
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	@Contract(pure = true)
+	public long getExpirations() {
+		return this.expirations.sum();
+	}
+
+	@Contract(pure = true)
+	public long getInvalidations() {
+		return this.invalidations.sum();
+	}
+
+	private void unindex(@NotNull Key key, @NotNull CacheEntry entry) {
+		for (String table : entry.tables) {
+			Set<Key> keys = this.keysByTable.get(table);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty())
+					this.keysByTable.remove(table);
+			}
+		}
+	}
+
+	/**
+	 * SQLite table names are case-insensitive.
+	 */
+	private static @NotNull String normalize(@NotNull String table) {
+		return table.toLowerCase(Locale.ROOT);
+	}
+
+	private static class Key {
+		private final @NotNull String sql;
+		private final @Nullable Object @NotNull[] params;
+		private final int hash;
+
+		private Key(@NotNull String sql, @Nullable Object @NotNull[] params) {
+			this.sql = sql;
+			this.params = params;
+			this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(params);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return this.hash == key.hash && this.sql.equals(key.sql) && Arrays.deepEquals(this.params, key.params);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	private static class CacheEntry {
+		private final @NotNull Object value;
+		private final @NotNull Set<@NotNull String> tables;
+		private final long expiresAt;
+
+		private CacheEntry(@NotNull Object value, @NotNull Set<@NotNull String> tables, long expiresAt) {
+			this.value = value;
+			this.tables = tables;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package fr.theoszanto.sqldatabase.codecs;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Conversion between a Java type and its SQL representation.
+ *
+ * <p>Codecs of primitive types never read {@code null} (the column default
+ * value of the primitive type is read instead), whereas codecs of reference
+ * types read {@code null} for SQL {@code NULL} values.</p>
+ */
+public interface TypeCodec<T> {
+	@Contract(pure = true)
+	@NotNull String getSQLType();
+
+	@Nullable T read(@NotNull ResultSet result, int index) throws SQLException;
+
+	void write(@NotNull PreparedStatement statement, int index, @Nullable T value) throws SQLException;
+
+	@Contract(value = "_, _, _ -> new", pure = true)
+	static <T> @NotNull TypeCodec<T> of(@NotNull String sqlType, @NotNull Reader<T> reader, @NotNull Writer<T> writer) {
+		return new TypeCodec<T>() {
+			@Override
+			public @NotNull String getSQLType() {
+				return sqlType;
+			}
+
+			@Override
+			public @Nullable T read(@NotNull ResultSet result, int index) throws SQLException {
+				T value = reader.read(result, index);
+				return result.wasNull() ? null : value;
+			}
+
+			@Override
+			public void write(@NotNull PreparedStatement statement, int index, @Nullable T value) throws SQLException {
+				if (value == null)
+					statement.setNull(index, Types.NULL);
+				else
+					writer.write(statement, index, value);
+			}
+		};
+	}
+
+	@Contract(value = "_, _, _ -> new", pure = true)
+	static <T> @NotNull TypeCodec<T> primitive(@NotNull String sqlType, @NotNull Reader<T> reader, @NotNull Writer<T> writer) {
+		return new TypeCodec<T>() {
+			@Override
+			public @NotNull String getSQLType() {
+				return sqlType;
+			}
+
+			@Override
+			public @NotNull T read(@NotNull ResultSet result, int index) throws SQLException {
+				return reader.read(result, index);
+			}
+
+			@Override
+			public void write(@NotNull PreparedStatement statement, int index, @Nullable T value) throws SQLException {
+				if (value == null)
+					statement.setNull(index, Types.NULL);
+				else
+					writer.write(statement, index, value);
+			}
+		};
+	}
+
+	@FunctionalInterface
+	interface Reader<T> {
+		T read(@NotNull ResultSet result, int index) throws SQLException;
+	}
+
+	@FunctionalInterface
+	interface Writer<T> {
+		void write(@NotNull PreparedStatement statement, int index, @NotNull T value) throws SQLException;
+	}
+}
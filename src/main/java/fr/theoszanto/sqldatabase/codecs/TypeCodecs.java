@@ -0,0 +1,186 @@
+package fr.theoszanto.sqldatabase.codecs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TypeCodecs {
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull TypeCodec<?>> codecsRegistry = new ConcurrentHashMap<>();
+
+	public static final @NotNull TypeCodec<Void> VOID = TypeCodec.primitive("NULL", (result, index) -> null, (statement, index, value) -> statement.setNull(index, Types.NULL));
+	public static final @NotNull TypeCodec<Boolean> BOOLEAN = TypeCodec.of("INTEGER", (result, index) -> result.getBoolean(index), (statement, index, value) -> statement.setBoolean(index, value));
+	public static final @NotNull TypeCodec<Byte> BYTE = TypeCodec.of("INTEGER", (result, index) -> result.getByte(index), (statement, index, value) -> statement.setByte(index, value));
+	public static final @NotNull TypeCodec<Short> SHORT = TypeCodec.of("INTEGER", (result, index) -> result.getShort(index), (statement, index, value) -> statement.setShort(index, value));
+	public static final @NotNull TypeCodec<Integer> INTEGER = TypeCodec.of("INTEGER", (result, index) -> result.getInt(index), (statement, index, value) -> statement.setInt(index, value));
+	public static final @NotNull TypeCodec<Long> LONG = TypeCodec.of("INTEGER", (result, index) -> result.getLong(index), (statement, index, value) -> statement.setLong(index, value));
+	public static final @NotNull TypeCodec<Float> FLOAT = TypeCodec.of("REAL", (result, index) -> result.getFloat(index), (statement, index, value) -> statement.setFloat(index, value));
+	public static final @NotNull TypeCodec<Double> DOUBLE = TypeCodec.of("REAL", (result, index) -> result.getDouble(index), (statement, index, value) -> statement.setDouble(index, value));
+	public static final @NotNull TypeCodec<Character> CHARACTER = TypeCodec.of("BLOB", TypeCodecs::getCharacter, (statement, index, value) -> statement.setString(index, value.toString()));
+	public static final @NotNull TypeCodec<String> STRING = TypeCodec.of("TEXT", (result, index) -> result.getString(index), (statement, index, value) -> statement.setString(index, value));
+	public static final @NotNull TypeCodec<Date> DATE = TypeCodec.of("TEXT", (result, index) -> result.getDate(index), (statement, index, value) -> statement.setDate(index, value));
+	public static final @NotNull TypeCodec<Time> TIME = TypeCodec.of("TEXT", (result, index) -> result.getTime(index), (statement, index, value) -> statement.setTime(index, value));
+	public static final @NotNull TypeCodec<Timestamp> TIMESTAMP = TypeCodec.of("TEXT", TypeCodecs::getTimestamp, (statement, index, value) -> statement.setTimestamp(index, value));
+	public static final @NotNull TypeCodec<BigDecimal> BIG_DECIMAL = TypeCodec.of("REAL", (result, index) -> result.getBigDecimal(index), (statement, index, value) -> statement.setBigDecimal(index, value));
+	public static final @NotNull TypeCodec<byte[]> BYTES = TypeCodec.of("BLOB", (result, index) -> result.getBytes(index), (statement, index, value) -> statement.setBytes(index, value));
+	public static final @NotNull TypeCodec<Instant> INSTANT = TypeCodec.of("INTEGER", (result, index) -> Instant.ofEpochMilli(result.getLong(index)), (statement, index, value) -> statement.setLong(index, value.toEpochMilli()));
+	public static final @NotNull TypeCodec<UUID> UUID_BYTES = TypeCodec.of("BLOB", TypeCodecs::getUUID, (statement, index, value) -> statement.setBytes(index, ByteBuffer.allocate(16).putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits()).array()));
+
+	static {
+		register(void.class, VOID);
+		register(Void.class, VOID);
+		register(boolean.class, TypeCodec.primitive("INTEGER", (result, index) -> result.getBoolean(index), (statement, index, value) -> statement.setBoolean(index, value)));
+		register(Boolean.class, BOOLEAN);
+		register(byte.class, TypeCodec.primitive("INTEGER", (result, index) -> result.getByte(index), (statement, index, value) -> statement.setByte(index, value)));
+		register(Byte.class, BYTE);
+		register(short.class, TypeCodec.primitive("INTEGER", (result, index) -> result.getShort(index), (statement, index, value) -> statement.setShort(index, value)));
+		register(Short.class, SHORT);
+		register(int.class, TypeCodec.primitive("INTEGER", (result, index) -> result.getInt(index), (statement, index, value) -> statement.setInt(index, value)));
+		register(Integer.class, INTEGER);
+		register(long.class, TypeCodec.primitive("INTEGER", (result, index) -> result.getLong(index), (statement, index, value) -> statement.setLong(index, value)));
+		register(Long.class, LONG);
+		register(float.class, TypeCodec.primitive("REAL", (result, index) -> result.getFloat(index), (statement, index, value) -> statement.setFloat(index, value)));
+		register(Float.class, FLOAT);
+		register(double.class, TypeCodec.primitive("REAL", (result, index) -> result.getDouble(index), (statement, index, value) -> statement.setDouble(index, value)));
+		register(Double.class, DOUBLE);
+		register(char.class, TypeCodec.primitive("BLOB", TypeCodecs::getChar, (statement, index, value) -> statement.setString(index, value.toString())));
+		register(Character.class, CHARACTER);
+		register(String.class, STRING);
+		register(Date.class, DATE);
+		register(Time.class, TIME);
+		register(Timestamp.class, TIMESTAMP);
+		register(BigDecimal.class, BIG_DECIMAL);
+		register(byte[].class, BYTES);
+		register(Instant.class, INSTANT);
+		register(UUID.class, UUID_BYTES);
+	}
+
+	private TypeCodecs() {}
+
+	/**
+	 * Register the codec used for the given type. Columns resolve their codec
+	 * once, the first time they are used, hence codecs must be registered
+	 * before any table using the type is.
+	 */
+	public static <T> void register(@NotNull Class<T> type, @NotNull TypeCodec<T> codec) {
+		codecsRegistry.put(type, codec);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T> @NotNull TypeCodec<T> get(@NotNull Class<T> type) {
+		TypeCodec<?> codec = codecsRegistry.get(type);
+		if (codec == null) {
+			if (type.isEnum())
+				codec = new EnumCodec(type);
+			else if (type.isAnonymousClass() && type.getSuperclass() != null && type.getSuperclass().isEnum())
+				return (TypeCodec<T>) get(type.getSuperclass());
+			else
+				codec = new ObjectCodec<>(type);
+			TypeCodec<?> previous = codecsRegistry.putIfAbsent(type, codec);
+			if (previous != null)
+				codec = previous;
+		}
+		return (TypeCodec<T>) codec;
+	}
+
+	/**
+	 * Find the codec of a parameter value from its runtime class, or
+	 * {@code null} if the value should be bound as is.
+	 */
+	@SuppressWarnings("unchecked")
+	public static @Nullable TypeCodec<Object> forValue(@Nullable Object value) {
+		if (value == null)
+			return null;
+		TypeCodec<?> codec = codecsRegistry.get(value.getClass());
+		if (codec == null && value instanceof Enum<?>)
+			codec = get(((Enum<?>) value).getDeclaringClass());
+		return (TypeCodec<Object>) codec;
+	}
+
+	private static @Nullable Character getCharacter(@NotNull ResultSet result, int index) throws SQLException {
+		String str = result.getString(index);
+		return str == null || str.isEmpty() ? null : str.charAt(0);
+	}
+
+	private static @NotNull Character getChar(@NotNull ResultSet result, int index) throws SQLException {
+		String str = result.getString(index);
+		return str == null || str.isEmpty() ? 0 : str.charAt(0);
+	}
+
+	private static @Nullable Timestamp getTimestamp(@NotNull ResultSet result, int index) throws SQLException {
+		try {
+			return result.getTimestamp(index);
+		} catch (SQLException e) {
+			return Timestamp.from(Instant.ofEpochMilli(result.getLong(index)));
+		}
+	}
+
+	private static @Nullable UUID getUUID(@NotNull ResultSet result, int index) throws SQLException {
+		byte[] bytes = result.getBytes(index);
+		if (bytes == null)
+			return null;
+		if (bytes.length != 16)
+			throw new SQLException("Invalid UUID value: expected 16 bytes, got " + bytes.length);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	private static class EnumCodec<E extends Enum<E>> implements TypeCodec<E> {
+		private final @NotNull Class<E> type;
+
+		private EnumCodec(@NotNull Class<E> type) {
+			this.type = type;
+		}
+
+		@Override
+		public @NotNull String getSQLType() {
+			return "TEXT";
+		}
+
+		@Override
+		public @Nullable E read(@NotNull ResultSet result, int index) throws SQLException {
+			String name = result.getString(index);
+			return name == null ? null : Enum.valueOf(this.type, name);
+		}
+
+		@Override
+		public void write(@NotNull PreparedStatement statement, int index, @Nullable E value) throws SQLException {
+			statement.setString(index, value == null ? null : value.name());
+		}
+	}
+
+	private static class ObjectCodec<T> implements TypeCodec<T> {
+		private final @NotNull Class<T> type;
+
+		private ObjectCodec(@NotNull Class<T> type) {
+			this.type = type;
+		}
+
+		@Override
+		public @NotNull String getSQLType() {
+			return "BLOB";
+		}
+
+		@Override
+		public @Nullable T read(@NotNull ResultSet result, int index) throws SQLException {
+			return result.getObject(index, this.type);
+		}
+
+		@Override
+		public void write(@NotNull PreparedStatement statement, int index, @Nullable T value) throws SQLException {
+			statement.setObject(index, value);
+		}
+	}
+}
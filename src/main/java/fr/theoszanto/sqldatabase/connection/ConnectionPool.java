@@ -0,0 +1,406 @@
+package fr.theoszanto.sqldatabase.connection;
+
+import fr.theoszanto.sqldatabase.DatabaseException;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Pool of SQLite connections opened in WAL mode: a single writer connection,
+ * borrowed exclusively, and a set of read-only connections that can be used
+ * concurrently by many threads.
+ *
+ * <p>A thread currently holding the writer connection is given that same
+ * connection when it asks for a reader, so that it always reads its own
+ * (possibly not yet committed) writes.</p>
+ */
+public class ConnectionPool implements AutoCloseable {
+	private int minReaders = 1;
+	private int maxReaders = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private long borrowTimeout = 30_000;
+	private int validationTimeout = 1;
+	private boolean validateOnBorrow = false;
+	private long validationIdleTime = 30_000;
+	private int busyTimeout = 5_000;
+	private int statementCacheSize = 64;
+
+	private volatile @Nullable String url;
+	private volatile int generation = 0;
+	private @Nullable PooledConnection writer;
+	private final @NotNull ReentrantLock writerLock = new ReentrantLock(true);
+	private final @NotNull BlockingDeque<@NotNull PooledConnection> idleReaders = new LinkedBlockingDeque<>();
+	private final @NotNull AtomicInteger openReaders = new AtomicInteger();
+
+	private final @NotNull LongAdder borrowCount = new LongAdder();
+	private final @NotNull LongAdder returnCount = new LongAdder();
+	private final @NotNull LongAdder waitCount = new LongAdder();
+	private final @NotNull LongAdder waitNanos = new LongAdder();
+	private final @NotNull LongAdder createdCount = new LongAdder();
+	private final @NotNull LongAdder invalidatedCount = new LongAdder();
+	private final @NotNull AtomicInteger activeCount = new AtomicInteger();
+	private final @NotNull LongAdder statementHits = new LongAdder();
+	private final @NotNull LongAdder statementMisses = new LongAdder();
+	private final @NotNull LongAdder statementEvictions = new LongAdder();
+
+	private static final @NotNull Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+	@Contract(pure = true)
+	public int getMinReaders() {
+		return this.minReaders;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setMinReaders(int minReaders) {
+		if (minReaders < 0 || minReaders > this.maxReaders)
+			throw new IllegalArgumentException("Invalid minimum readers count: " + minReaders);
+		this.minReaders = minReaders;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public int getMaxReaders() {
+		return this.maxReaders;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setMaxReaders(int maxReaders) {
+		if (maxReaders <= 0 || maxReaders < this.minReaders)
+			throw new IllegalArgumentException("Invalid maximum readers count: " + maxReaders);
+		this.maxReaders = maxReaders;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public long getBorrowTimeout() {
+		return this.borrowTimeout;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setBorrowTimeout(long borrowTimeout) {
+		if (borrowTimeout < 0)
+			throw new IllegalArgumentException("Invalid borrow timeout: " + borrowTimeout);
+		this.borrowTimeout = borrowTimeout;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public int getValidationTimeout() {
+		return this.validationTimeout;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setValidationTimeout(int validationTimeout) {
+		if (validationTimeout < 0)
+			throw new IllegalArgumentException("Invalid validation timeout: " + validationTimeout);
+		this.validationTimeout = validationTimeout;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public boolean isValidateOnBorrow() {
+		return this.validateOnBorrow;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setValidateOnBorrow(boolean validateOnBorrow) {
+		this.validateOnBorrow = validateOnBorrow;
+		return this;
+	}
+
+	/**
+	 * Get the time, in milliseconds, after which an idle connection is
+	 * validated when borrowed, even if {@link #isValidateOnBorrow() validation
+	 * on borrow} is disabled.
+	 */
+	@Contract(pure = true)
+	public long getValidationIdleTime() {
+		return this.validationIdleTime;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setValidationIdleTime(long validationIdleTime) {
+		if (validationIdleTime < 0)
+			throw new IllegalArgumentException("Invalid validation idle time: " + validationIdleTime);
+		this.validationIdleTime = validationIdleTime;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public int getBusyTimeout() {
+		return this.busyTimeout;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setBusyTimeout(int busyTimeout) {
+		if (busyTimeout < 0)
+			throw new IllegalArgumentException("Invalid busy timeout: " + busyTimeout);
+		this.busyTimeout = busyTimeout;
+		return this;
+	}
+
+	@Contract(pure = true)
+	public int getStatementCacheSize() {
+		return this.statementCacheSize;
+	}
+
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull ConnectionPool setStatementCacheSize(int statementCacheSize) {
+		if (statementCacheSize < 0)
+			throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+		this.statementCacheSize = statementCacheSize;
+		return this;
+	}
+
+	public void open(@NotNull String url) throws SQLException {
+		this.close();
+		this.writerLock.lock();
+		try {
+			this.url = url;
+			this.writer = new PooledConnection(this, this.connect(url, false), true, this.generation);
+			for (int i = 0; i < this.minReaders; i++) {
+				this.openReaders.incrementAndGet();
+				this.idleReaders.offerLast(new PooledConnection(this, this.connect(url, true), false, this.generation));
+			}
+		} finally {
+			this.writerLock.unlock();
+		}
+	}
+
+	public boolean isOpen() {
+		return this.url != null;
+	}
+
+	public boolean isRunning() {
+		PooledConnection writer = this.writer;
+		return this.isOpen() && writer != null && writer.isValid(this.validationTimeout);
+	}
+
+	public @NotNull PooledConnection writer() throws DatabaseException {
+		long start = System.nanoTime();
+		try {
+			if (!this.writerLock.tryLock()) {
+				this.waitCount.increment();
+				if (!this.writerLock.tryLock(this.borrowTimeout, TimeUnit.MILLISECONDS))
+					throw new DatabaseException("Timed out while waiting for the database writer connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseException("Interrupted while waiting for the database writer connection", e);
+		} finally {
+			this.waitNanos.add(System.nanoTime() - start);
+		}
+		try {
+			PooledConnection writer = this.writer;
+			if (writer == null)
+				throw new DatabaseException("Database connection not initialized");
+			if (this.writerLock.getHoldCount() == 1 && this.needsValidation(writer) && !writer.isValid(this.validationTimeout)) {
+				LOGGER.warning("Database writer connection is no longer valid, reconnecting...");
+				this.invalidatedCount.increment();
+				writer.destroy();
+				this.writer = writer = new PooledConnection(this, this.connect(this.requireUrl(), false), true, this.generation);
+			}
+			this.borrowed();
+			return writer;
+		} catch (SQLException | RuntimeException e) {
+			this.writerLock.unlock();
+			throw e instanceof DatabaseException ? (DatabaseException) e : new DatabaseException(e);
+		}
+	}
+
+	public @NotNull PooledConnection reader() throws DatabaseException {
+		if (this.writerLock.isHeldByCurrentThread())
+			return this.writer();
+		String url = this.requireUrl();
+		long start = System.nanoTime();
+		try {
+			while (true) {
+				PooledConnection reader = this.idleReaders.pollFirst();
+				if (reader == null) {
+					int open = this.openReaders.get();
+					if (open < this.maxReaders) {
+						if (!this.openReaders.compareAndSet(open, open + 1))
+							continue;
+						try {
+							reader = new PooledConnection(this, this.connect(url, true), false, this.generation);
+						} catch (SQLException | RuntimeException e) {
+							this.openReaders.decrementAndGet();
+							throw e;
+						}
+					} else {
+						this.waitCount.increment();
+						reader = this.idleReaders.pollFirst(this.borrowTimeout, TimeUnit.MILLISECONDS);
+						if (reader == null)
+							throw new DatabaseException("Timed out while waiting for a database reader connection");
+					}
+				} else if (reader.getGeneration() != this.generation || (this.needsValidation(reader) && !reader.isValid(this.validationTimeout))) {
+					this.invalidatedCount.increment();
+					this.discard(reader);
+					continue;
+				}
+				this.borrowed();
+				return reader;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseException("Interrupted while waiting for a database reader connection", e);
+		} catch (SQLException e) {
+			throw new DatabaseException(e);
+		} finally {
+			this.waitNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	/* package-private */ void release(@NotNull PooledConnection connection) {
+		this.returnCount.increment();
+		this.activeCount.decrementAndGet();
+		if (connection.isWriter()) {
+			this.writerLock.unlock();
+			return;
+		}
+		if (connection.getGeneration() != this.generation || !this.isOpen())
+			this.discard(connection);
+		else
+			this.idleReaders.offerFirst(connection);
+	}
+
+	/* package-private */ void statementHit() {
+		this.statementHits.increment();
+	}
+
+	/* package-private */ void statementMiss() {
+		this.statementMisses.increment();
+	}
+
+	/* package-private */ void statementEvicted() {
+		this.statementEvictions.increment();
+	}
+
+	/**
+	 * Whether the given connection should be checked before being borrowed:
+	 * validation runs a statement, so it is only done for connections idle
+	 * for long unless requested on every borrow.
+	 */
+	private boolean needsValidation(@NotNull PooledConnection connection) {
+		return this.validateOnBorrow || System.nanoTime() - connection.getReleasedAt() >= TimeUnit.MILLISECONDS.toNanos(this.validationIdleTime);
+	}
+
+	private void borrowed() {
+		this.borrowCount.increment();
+		this.activeCount.incrementAndGet();
+	}
+
+	private void discard(@NotNull PooledConnection reader) {
+		if (reader.getGeneration() == this.generation)
+			this.openReaders.decrementAndGet();
+		reader.destroy();
+	}
+
+	private @NotNull String requireUrl() throws DatabaseException {
+		String url = this.url;
+		if (url == null)
+			throw new DatabaseException("Database connection not initialized");
+		return url;
+	}
+
+	private @NotNull Connection connect(@NotNull String url, boolean readOnly) throws SQLException {
+		SQLiteConfig config = new SQLiteConfig();
+		config.setBusyTimeout(this.busyTimeout);
+		if (readOnly)
+			config.setReadOnly(true);
+		else
+			config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+		Connection connection = config.createConnection(url);
+		this.createdCount.increment();
+		return connection;
+	}
+
+	@Override
+	public void close() {
+		this.writerLock.lock();
+		try {
+			this.url = null;
+			this.generation++;
+			if (this.writer != null) {
+				this.writer.destroy();
+				this.writer = null;
+			}
+			PooledConnection reader;
+			while ((reader = this.idleReaders.pollFirst()) != null)
+				reader.destroy();
+			this.openReaders.set(0);
+		} finally {
+			this.writerLock.unlock();
+		}
+	}
+
+	@Contract(pure = true)
+	public long getBorrowCount() {
+		return this.borrowCount.sum();
+	}
+
+	@Contract(pure = true)
+	public long getReturnCount() {
+		return this.returnCount.sum();
+	}
+
+	@Contract(pure = true)
+	public long getWaitCount() {
+		return this.waitCount.sum();
+	}
+
+	@Contract(pure = true)
+	public long getTotalWaitNanos() {
+		return this.waitNanos.sum();
+	}
+
+	@Contract(pure = true)
+	public long getCreatedCount() {
+		return this.createdCount.sum();
+	}
+
+	@Contract(pure = true)
+	public long getInvalidatedCount() {
+		return this.invalidatedCount.sum();
+	}
+
+	@Contract(pure = true)
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	@Contract(pure = true)
+	public int getIdleReadersCount() {
+		return this.idleReaders.size();
+	}
+
+	@Contract(pure = true)
+	public int getOpenReadersCount() {
+		return this.openReaders.get();
+	}
+
+	@Contract(pure = true)
+	public long getStatementCacheHits() {
+		return this.statementHits.sum();
+	}
+
+	@Contract(pure = true)
+	public long getStatementCacheMisses() {
+		return this.statementMisses.sum();
+	}
+
+	@Contract(pure = true)
+	public long getStatementCacheEvictions() {
+		return this.statementEvictions.sum();
+	}
+}
@@ -0,0 +1,117 @@
+package fr.theoszanto.sqldatabase.connection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PooledConnection implements AutoCloseable {
+	private final @NotNull ConnectionPool pool;
+	private final @NotNull Connection connection;
+	private final boolean writer;
+	private final int generation;
+	private volatile long releasedAt = System.nanoTime();
+	// Statements are removed while in use, so nested usage of the same SQL never shares a statement
+	private final @NotNull Map<@NotNull String, @NotNull PreparedStatement> statements = new LinkedHashMap<>();
+
+	/* package-private */ PooledConnection(@NotNull ConnectionPool pool, @NotNull Connection connection, boolean writer, int generation) {
+		this.pool = pool;
+		this.connection = connection;
+		this.writer = writer;
+		this.generation = generation;
+	}
+
+	public @NotNull ConnectionPool getPool() {
+		return this.pool;
+	}
+
+	public @NotNull Connection getConnection() {
+		return this.connection;
+	}
+
+	public boolean isWriter() {
+		return this.writer;
+	}
+
+	public @NotNull PooledStatement prepare(@NotNull String sql) throws SQLException {
+		PreparedStatement statement = this.statements.remove(sql);
+		if (statement == null || statement.isClosed()) {
+			this.pool.statementMiss();
+			statement = this.connection.prepareStatement(sql);
+		} else
+			this.pool.statementHit();
+		return new PooledStatement(this, sql, statement);
+	}
+
+	/* package-private */ void release(@NotNull String sql, @NotNull PreparedStatement statement) {
+		int capacity = this.pool.getStatementCacheSize();
+		try {
+			if (capacity <= 0 || statement.isClosed() || this.statements.containsKey(sql)) {
+				statement.close();
+				return;
+			}
+			statement.clearParameters();
+			statement.clearBatch();
+			this.statements.put(sql, statement);
+		} catch (SQLException e) {
+			closeQuietly(statement);
+			return;
+		}
+		// Least recently released statements come first
+		Iterator<PreparedStatement> i = this.statements.values().iterator();
+		while (this.statements.size() > capacity && i.hasNext()) {
+			closeQuietly(i.next());
+			i.remove();
+			this.pool.statementEvicted();
+		}
+	}
+
+	public int getCachedStatementsCount() {
+		return this.statements.size();
+	}
+
+	/* package-private */ int getGeneration() {
+		return this.generation;
+	}
+
+	/* package-private */ long getReleasedAt() {
+		return this.releasedAt;
+	}
+
+	/* package-private */ boolean isValid(int timeout) {
+		try {
+			return !this.connection.isClosed() && this.connection.isValid(timeout);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/* package-private */ void destroy() {
+		for (PreparedStatement statement : this.statements.values())
+			closeQuietly(statement);
+		this.statements.clear();
+		try {
+			this.connection.close();
+		} catch (SQLException ignored) {}
+	}
+
+	/**
+	 * Give this connection back to its pool. The underlying JDBC connection
+	 * stays open and is reused by the next borrower.
+	 */
+	@Override
+	public void close() {
+		this.releasedAt = System.nanoTime();
+		this.pool.release(this);
+	}
+
+	private static void closeQuietly(@NotNull PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException ignored) {}
+	}
+}
@@ -0,0 +1,63 @@
+package fr.theoszanto.sqldatabase.connection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class PooledStatement implements AutoCloseable {
+	private final @NotNull PooledConnection connection;
+	private final @NotNull String sql;
+	private final @NotNull PreparedStatement statement;
+	private @Nullable ResultSet result;
+
+	/* package-private */ PooledStatement(@NotNull PooledConnection connection, @NotNull String sql, @NotNull PreparedStatement statement) {
+		this.connection = connection;
+		this.sql = sql;
+		this.statement = statement;
+	}
+
+	public @NotNull PooledConnection getConnection() {
+		return this.connection;
+	}
+
+	public @NotNull String getSql() {
+		return this.sql;
+	}
+
+	public @NotNull PreparedStatement getStatement() {
+		return this.statement;
+	}
+
+	public boolean execute() throws SQLException {
+		boolean hasResult = this.statement.execute();
+		if (hasResult)
+			this.result = this.statement.getResultSet();
+		return hasResult;
+	}
+
+	public int executeUpdate() throws SQLException {
+		return this.statement.executeUpdate();
+	}
+
+	public @NotNull ResultSet executeQuery() throws SQLException {
+		return this.result = this.statement.executeQuery();
+	}
+
+	/**
+	 * Reset the statement and give it back to the connection cache. Any
+	 * result set still open is closed so that SQLite releases its read
+	 * snapshot.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (this.result != null && !this.result.isClosed())
+				this.result.close();
+		} catch (SQLException ignored) {}
+		this.result = null;
+		this.connection.release(this.sql, this.statement);
+	}
+}
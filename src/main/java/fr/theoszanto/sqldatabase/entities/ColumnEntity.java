@@ -1,7 +1,10 @@
 package fr.theoszanto.sqldatabase.entities;
 
+import fr.theoszanto.sqldatabase.codecs.TypeCodec;
+import fr.theoszanto.sqldatabase.codecs.TypeCodecs;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLValue;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
 
@@ -12,6 +15,8 @@ public class ColumnEntity {
 	private final @NotNull Field field;
 	private final boolean primary;
 	private final boolean foreign;
+	private int index = -1;
+	private volatile @Nullable TypeCodec<Object> codec;
 
 	/* package-private */ ColumnEntity(@NotNull TableEntity table, @NotNull String name, @NotNull Class<?> type, @NotNull Field field, boolean primary, boolean foreign) {
 		this.table = table;
@@ -38,6 +43,32 @@ public class ColumnEntity {
 		return this.field;
 	}
 
+	public int getIndex() {
+		return this.index;
+	}
+
+	/* package-private */ void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Get the codec of this column, resolved on first call. Columns of deep
+	 * fetched foreign keys use the codec of their referenced column.
+	 */
+	@SuppressWarnings("unchecked")
+	public @NotNull TypeCodec<Object> getCodec() {
+		TypeCodec<Object> codec = this.codec;
+		if (codec == null) {
+			ForeignKeyEntity foreignKey = this.foreign ? this.table.getForeignKeys().get(this) : null;
+			if (foreignKey != null && (foreignKey.isDeepFetch() || foreignKey.isLazyFetch()))
+				codec = foreignKey.getReference().getCodec();
+			else
+				codec = (TypeCodec<Object>) TypeCodecs.get(this.type);
+			this.codec = codec;
+		}
+		return codec;
+	}
+
 	public boolean isPrimary() {
 		return this.primary;
 	}
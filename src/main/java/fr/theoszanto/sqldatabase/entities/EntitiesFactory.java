@@ -1,5 +1,7 @@
 package fr.theoszanto.sqldatabase.entities;
 
+import fr.theoszanto.sqldatabase.LazyReference;
+import fr.theoszanto.sqldatabase.annotations.DatabaseConstructor;
 import fr.theoszanto.sqldatabase.annotations.DatabaseExclude;
 import fr.theoszanto.sqldatabase.annotations.DatabaseField;
 import fr.theoszanto.sqldatabase.annotations.DatabaseForeignKey;
@@ -10,22 +12,29 @@ import fr.theoszanto.sqldatabase.annotations.DatabaseTable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class EntitiesFactory {
-	private static final @NotNull Map<@NotNull Class<?>, @NotNull TableEntity> tablesRegistry = new HashMap<>();
-	private static final @NotNull Map<@NotNull ColumnEntity, @NotNull IndexEntity> indexesRegistry = new HashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull TableEntity> tablesRegistry = new ConcurrentHashMap<>();
+	private static final @NotNull Map<@NotNull Class<?>, @NotNull TableEntity> pendingTablesRegistry = new HashMap<>();
+	private static final @NotNull Map<@NotNull ColumnEntity, @NotNull IndexEntity> indexesRegistry = new ConcurrentHashMap<>();
 
 	private static final int IGNORED_FIELDS_MODIFIERS = Modifier.FINAL | Modifier.TRANSIENT | Modifier.STATIC | Modifier.NATIVE;
+	private static final int IGNORED_CONSTRUCTED_FIELDS_MODIFIERS = Modifier.TRANSIENT | Modifier.STATIC | Modifier.NATIVE;
+	private static final @NotNull String RECORD_CLASS_NAME = "java.lang.Record";
 
 	private EntitiesFactory() {}
 
@@ -41,9 +50,29 @@ public class EntitiesFactory {
 
 	public static @NotNull TableEntity table(@NotNull Class<?> type) {
 		// Verify if table was already created
+		TableEntity table = tablesRegistry.get(type);
+		return table == null ? createTable(type) : table;
+	}
+
+	private static synchronized @NotNull TableEntity createTable(@NotNull Class<?> type) {
+		// Verify if table was created meanwhile, or is being created by a recursive call
 		if (tablesRegistry.containsKey(type))
 			return tablesRegistry.get(type);
+		if (pendingTablesRegistry.containsKey(type))
+			return pendingTablesRegistry.get(type);
+		// Tables are only published once the outermost creation is complete
+		if (!pendingTablesRegistry.isEmpty())
+			return buildTable(type);
+		try {
+			TableEntity table = buildTable(type);
+			tablesRegistry.putAll(pendingTablesRegistry);
+			return table;
+		} finally {
+			pendingTablesRegistry.clear();
+		}
+	}
 
+	private static @NotNull TableEntity buildTable(@NotNull Class<?> type) {
 		// Ensure descriptor is properly set or define table as model binding
 		DatabaseTable tableDescriptor = type.getAnnotation(DatabaseTable.class);
 		if (tableDescriptor == null && !type.isAnnotationPresent(DatabaseModelBinding.class))
@@ -52,10 +81,11 @@ public class EntitiesFactory {
 
 		// Create table
 		TableEntity table = new TableEntity(tableName, type);
-		tablesRegistry.put(type, table);
+		pendingTablesRegistry.put(type, table);
 		List<ColumnEntity> primaryKeyColumns = new ArrayList<>();
 		AtomicBoolean autoIncrementPrimaryKey = new AtomicBoolean(false);
-		forEachFields(type, field -> {
+		int ignoredModifiers = isConstructorBound(type) ? IGNORED_CONSTRUCTED_FIELDS_MODIFIERS : IGNORED_FIELDS_MODIFIERS;
+		forEachFields(type, ignoredModifiers, field -> {
 			// Get column
 			ColumnEntity column = column(table, field);
 			table.addColumn(column);
@@ -69,10 +99,13 @@ public class EntitiesFactory {
 			// Check foreign key
 			if (column.isForeign()) {
 				DatabaseForeignKey foreignKey = field.getAnnotation(DatabaseForeignKey.class);
+				boolean lazy = foreignKey.fetch() == DatabaseForeignKey.FetchMode.LAZY || column.getType() == LazyReference.class;
+				if (lazy && column.getType() != LazyReference.class)
+					throw new IllegalStateException("Lazy foreign key on column \"" + column.getName() + "\" must be declared as " + LazyReference.class.getSimpleName());
 				// Retrieve referenced information
 				Class<?> referencedType = foreignKey.table();
 				if (referencedType == Object.class)
-					referencedType = column.getType();
+					referencedType = lazy ? lazyReferencedType(field) : column.getType();
 				if (!referencedType.isAnnotationPresent(DatabaseTable.class))
 					throw new IllegalStateException("Missing or invalid referenced table type for foreign key on column \"" + column.getName() + "\": @DatabaseTable annotation not found on type " + referencedType);
 				TableEntity referencedTable = table(referencedType);
@@ -85,9 +118,9 @@ public class EntitiesFactory {
 				// Check if column type is referenced table type
 				boolean deep = column.getType() == referencedTable.getType();
 				// Or at least referenced column type
-				if (!deep && incompatibleTypes(column.getType(), referencedColumn.getType()))
+				if (!deep && !lazy && incompatibleTypes(column.getType(), referencedColumn.getType()))
 					throw new IllegalStateException("Type mismatch in foreign key on column \"" + column.getName() + "\": " + column.getType() + " != " + referencedColumn.getType());
-				table.getForeignKeys().put(column, new ForeignKeyEntity(column, referencedColumn, referencedTable, deep));
+				table.getForeignKeys().put(column, new ForeignKeyEntity(column, referencedColumn, referencedTable, deep, lazy));
 			}
 		});
 		if (autoIncrementPrimaryKey.get()) {
@@ -112,13 +145,44 @@ public class EntitiesFactory {
 		return index;
 	}
 
-	private static void forEachFields(@NotNull Class<?> type, @NotNull Consumer<@NotNull Field> action) {
+	private static @NotNull Class<?> lazyReferencedType(@NotNull Field field) {
+		Type type = field.getGenericType();
+		if (type instanceof ParameterizedType) {
+			Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (argument instanceof Class<?>)
+				return (Class<?>) argument;
+		}
+		throw new IllegalStateException("Cannot infer referenced table type of lazy foreign key " + field + ": use DatabaseForeignKey.table()");
+	}
+
+	/**
+	 * Whether rows are bound to the given type through a constructor taking all
+	 * columns, that is a record or a type with a {@link DatabaseConstructor}.
+	 */
+	public static boolean isConstructorBound(@NotNull Class<?> type) {
+		return isRecord(type) || boundConstructor(type) != null;
+	}
+
+	/* package-private */ static boolean isRecord(@NotNull Class<?> type) {
+		// Records are resolved by name to keep running on Java 8
+		Class<?> superType = type.getSuperclass();
+		return superType != null && superType.getName().equals(RECORD_CLASS_NAME);
+	}
+
+	/* package-private */ static @Nullable Constructor<?> boundConstructor(@NotNull Class<?> type) {
+		for (Constructor<?> constructor : type.getDeclaredConstructors())
+			if (constructor.isAnnotationPresent(DatabaseConstructor.class))
+				return constructor;
+		return null;
+	}
+
+	private static void forEachFields(@NotNull Class<?> type, int ignoredModifiers, @NotNull Consumer<@NotNull Field> action) {
 		for (Field field : type.getDeclaredFields())
-			if (!field.isAnnotationPresent(DatabaseExclude.class) && (field.getModifiers() & IGNORED_FIELDS_MODIFIERS) == 0)
+			if (!field.isAnnotationPresent(DatabaseExclude.class) && (field.getModifiers() & ignoredModifiers) == 0)
 				action.accept(field);
 		Class<?> superType = type.getSuperclass();
-		if (superType != null && superType != Object.class)
-			forEachFields(superType, action);
+		if (superType != null && superType != Object.class && !superType.getName().equals(RECORD_CLASS_NAME))
+			forEachFields(superType, ignoredModifiers, action);
 	}
 
 	private static boolean invalidAutoIncrementType(@NotNull Class<?> type) {
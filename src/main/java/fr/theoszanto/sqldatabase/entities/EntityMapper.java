@@ -0,0 +1,235 @@
+package fr.theoszanto.sqldatabase.entities;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accessors of a table type, resolved once into method handles: the no-arg
+ * constructor and a getter and setter for each column field, indexed by
+ * {@link ColumnEntity#getIndex() column index}.
+ *
+ * <p>Types bound through a constructor (records and types with a
+ * {@link fr.theoszanto.sqldatabase.annotations.DatabaseConstructor}) are
+ * created at once from an array of column values, indexed the same way.</p>
+ *
+ * <p>When a {@link GeneratedMapper} was generated at compile time for the
+ * table type and covers all of its columns, it is used instead.</p>
+ */
+public class EntityMapper {
+	private static final @NotNull MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+	private static final @NotNull MethodType CREATOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+	private static final @NotNull MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final @NotNull MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final @NotNull TableEntity table;
+	private final @Nullable GeneratedMapper<Object> generated;
+	private final int @Nullable[] slots;
+	private final @Nullable MethodHandle constructor;
+	private final @Nullable MethodHandle creator;
+	private final @Nullable Object @NotNull[] defaults;
+	private final @Nullable MethodHandle @NotNull[] getters;
+	private final @Nullable MethodHandle @NotNull[] setters;
+
+	/* package-private */ EntityMapper(@NotNull TableEntity table) {
+		this.table = table;
+		int size = table.size();
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		this.creator = creator(lookup, table);
+		this.defaults = new Object[size];
+		if (this.creator != null)
+			for (ColumnEntity column : table)
+				if (column.getType().isPrimitive())
+					this.defaults[column.getIndex()] = Array.get(Array.newInstance(column.getType(), 1), 0);
+		GeneratedMapper<Object> generated = generated(table.getType());
+		int[] slots = generated == null ? null : slots(table, generated);
+		if (slots != null) {
+			this.generated = generated;
+			this.slots = slots;
+			this.constructor = generated.isInstantiable() || this.creator != null ? null : constructor(lookup, table.getType());
+			this.getters = new MethodHandle[0];
+			this.setters = new MethodHandle[0];
+			return;
+		}
+		this.generated = null;
+		this.slots = null;
+		this.constructor = constructor(lookup, table.getType());
+		this.getters = new MethodHandle[size];
+		this.setters = new MethodHandle[size];
+		for (ColumnEntity column : table) {
+			Field field = column.getField();
+			field.setAccessible(true);
+			try {
+				this.getters[column.getIndex()] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+				// Final fields of constructor bound types are never written
+				if (!Modifier.isFinal(field.getModifiers()))
+					this.setters[column.getIndex()] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Cannot access field " + field + " of table " + table.getName(), e);
+			}
+		}
+	}
+
+	public @NotNull TableEntity getTable() {
+		return this.table;
+	}
+
+	public boolean isGenerated() {
+		return this.generated != null;
+	}
+
+	public boolean isInstantiable() {
+		return this.generated != null && this.generated.isInstantiable() || this.constructor != null;
+	}
+
+	public boolean isConstructorBound() {
+		return this.creator != null;
+	}
+
+	/**
+	 * Create the arguments array of {@link #construct(Object[])}, filled with
+	 * the default value of each column type.
+	 */
+	public @Nullable Object @NotNull[] newArguments() {
+		return this.defaults.clone();
+	}
+
+	public @NotNull Object construct(@Nullable Object @NotNull[] arguments) throws ReflectiveOperationException {
+		if (this.creator == null)
+			throw new NoSuchMethodException("Missing binding constructor on " + this.table.getType());
+		if (this.generated != null) {
+			Object[] fields = new Object[arguments.length];
+			for (int i = 0; i < arguments.length; i++)
+				fields[this.slots[i]] = arguments[i];
+			return this.generated.construct(fields);
+		}
+		try {
+			return (Object) this.creator.invokeExact(arguments);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public @NotNull Object newInstance() throws ReflectiveOperationException {
+		if (this.generated != null && this.generated.isInstantiable())
+			return this.generated.newInstance();
+		if (this.constructor == null)
+			throw new NoSuchMethodException("Missing no-arg constructor on " + this.table.getType());
+		try {
+			return (Object) this.constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public @Nullable Object get(@NotNull ColumnEntity column, @NotNull Object entity) throws ReflectiveOperationException {
+		if (this.generated != null)
+			return this.generated.get(this.slots[column.getIndex()], entity);
+		try {
+			return (Object) this.getters[column.getIndex()].invokeExact(entity);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public void set(@NotNull ColumnEntity column, @NotNull Object entity, @Nullable Object value) throws ReflectiveOperationException {
+		if (this.generated != null) {
+			this.generated.set(this.slots[column.getIndex()], entity, value);
+			return;
+		}
+		MethodHandle setter = this.setters[column.getIndex()];
+		if (setter == null)
+			throw new IllegalStateException("Cannot write final column " + column.getName() + " of table " + this.table.getName());
+		try {
+			setter.invokeExact(entity, value);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private static @Nullable MethodHandle constructor(@NotNull MethodHandles.Lookup lookup, @NotNull Class<?> type) {
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static @Nullable MethodHandle creator(@NotNull MethodHandles.Lookup lookup, @NotNull TableEntity table) {
+		Class<?> type = table.getType();
+		Constructor<?> constructor = EntitiesFactory.boundConstructor(type);
+		Class<?>[] types = new Class<?>[table.size()];
+		for (ColumnEntity column : table)
+			types[column.getIndex()] = column.getType();
+		if (constructor == null) {
+			if (!EntitiesFactory.isRecord(type))
+				return null;
+			// The canonical constructor of a record takes its components in declaration order
+			try {
+				constructor = type.getDeclaredConstructor(types);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException("Cannot find canonical constructor of record " + type.getName(), e);
+			}
+		} else if (!Arrays.equals(constructor.getParameterTypes(), types))
+			throw new IllegalStateException("Parameters of " + constructor + " do not match columns of table " + table.getName() + ": " + Arrays.toString(types));
+		constructor.setAccessible(true);
+		try {
+			return lookup.unreflectConstructor(constructor)
+					.asSpreader(Object[].class, types.length)
+					.asType(CREATOR_TYPE);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot access constructor " + constructor + " of table " + table.getName(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static @Nullable GeneratedMapper<Object> generated(@NotNull Class<?> type) {
+		try {
+			Class<?> mapper = Class.forName(type.getName() + GeneratedMapper.SUFFIX, true, type.getClassLoader());
+			if (!GeneratedMapper.class.isAssignableFrom(mapper))
+				return null;
+			return (GeneratedMapper<Object>) mapper.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	private static int @Nullable[] slots(@NotNull TableEntity table, @NotNull GeneratedMapper<Object> generated) {
+		// Generated fields are designated by name, which may differ in order from reflection
+		String[] fields = generated.getFields();
+		if (fields.length != table.size())
+			return null;
+		Map<String, Integer> positions = new HashMap<>();
+		for (int i = 0; i < fields.length; i++)
+			positions.put(fields[i], i);
+		int[] slots = new int[table.size()];
+		for (ColumnEntity column : table) {
+			Integer position = positions.get(column.getField().getName());
+			if (position == null)
+				return null;
+			slots[column.getIndex()] = position;
+		}
+		return slots;
+	}
+}
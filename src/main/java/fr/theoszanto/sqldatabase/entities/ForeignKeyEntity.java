@@ -7,12 +7,20 @@ public class ForeignKeyEntity {
 	private final @NotNull ColumnEntity reference;
 	private final @NotNull TableEntity table;
 	private final boolean deepFetch;
+	private final boolean lazyFetch;
 
 	public ForeignKeyEntity(@NotNull ColumnEntity column, @NotNull ColumnEntity reference, @NotNull TableEntity table, boolean deepFetch) {
+		this(column, reference, table, deepFetch, false);
+	}
+
+	public ForeignKeyEntity(@NotNull ColumnEntity column, @NotNull ColumnEntity reference, @NotNull TableEntity table, boolean deepFetch, boolean lazyFetch) {
+		if (deepFetch && lazyFetch)
+			throw new IllegalArgumentException("Foreign key cannot be both deep and lazy fetched");
 		this.column = column;
 		this.table = table;
 		this.reference = reference;
 		this.deepFetch = deepFetch;
+		this.lazyFetch = lazyFetch;
 	}
 
 	public @NotNull ColumnEntity getColumn() {
@@ -30,4 +38,8 @@ public class ForeignKeyEntity {
 	public boolean isDeepFetch() {
 		return this.deepFetch;
 	}
+
+	public boolean isLazyFetch() {
+		return this.lazyFetch;
+	}
 }
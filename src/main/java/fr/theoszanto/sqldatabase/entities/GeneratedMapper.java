@@ -0,0 +1,45 @@
+package fr.theoszanto.sqldatabase.entities;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reflection-free accessors of a table type, generated at compile time by the
+ * SQLDatabaseAPI annotation processor as {@code <binary name>_DatabaseMapper}
+ * next to the table type, and automatically picked up by {@link EntityMapper}.
+ *
+ * <p>Fields are designated by their position in {@link #getFields()}.</p>
+ */
+public interface GeneratedMapper<T> {
+	@NotNull String SUFFIX = "_DatabaseMapper";
+
+	@NotNull String @NotNull[] getFields();
+
+	/**
+	 * Whether {@link #newInstance()} is available, that is the no-arg
+	 * constructor of the table type is accessible from its package.
+	 */
+	default boolean isInstantiable() {
+		return false;
+	}
+
+	/**
+	 * Create an entity through its no-arg constructor, for types which are not
+	 * constructor bound.
+	 */
+	default @NotNull T newInstance() {
+		throw new UnsupportedOperationException("Not instantiable without arguments");
+	}
+
+	/**
+	 * Create an entity through its binding constructor, for constructor bound
+	 * types, from the values of the fields in {@link #getFields()} order.
+	 */
+	default @NotNull T construct(@Nullable Object @NotNull[] arguments) {
+		throw new UnsupportedOperationException("Not constructor bound");
+	}
+
+	@Nullable Object get(int field, @NotNull T entity);
+
+	void set(int field, @NotNull T entity, @Nullable Object value);
+}
@@ -49,7 +49,7 @@ public class PrimaryKeyEntity implements Iterable<@NotNull ColumnEntity> {
 			return null;
 		SQLConditionBuilder builder = conditionEquals(i);
 		while (i.hasNext())
-			builder.and(conditionEquals(i));
+			builder = builder.and(conditionEquals(i));
 		return builder;
 	}
 
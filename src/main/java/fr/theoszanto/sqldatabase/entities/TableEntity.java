@@ -17,10 +17,6 @@ import fr.theoszanto.sqldatabase.utils.CollectionsUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.math.BigDecimal;
-import java.sql.Date;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -32,6 +28,7 @@ public class TableEntity implements Iterable<@NotNull ColumnEntity> {
 	private @Nullable PrimaryKeyEntity primaryKey;
 	private final @NotNull Map<@NotNull ColumnEntity, @NotNull ForeignKeyEntity> foreignKeys = new HashMap<>();
 	private final @NotNull Map<@NotNull String, @NotNull ColumnEntity> columnsByFieldName = new HashMap<>();
+	private volatile @Nullable EntityMapper mapper;
 
 	public TableEntity(@NotNull String name, @NotNull Class<?> type) {
 		this.name = name;
@@ -75,6 +72,8 @@ public class TableEntity implements Iterable<@NotNull ColumnEntity> {
 	}
 
 	/* package-private */ void addColumn(@NotNull ColumnEntity column) {
+		if (column.getIndex() < 0)
+			column.setIndex(this.columns.size());
 		this.columns.put(column.getName(), column);
 		this.columnsByFieldName.put(column.getField().getName(), column);
 	}
@@ -83,6 +82,13 @@ public class TableEntity implements Iterable<@NotNull ColumnEntity> {
 		return this.columnsByFieldName.get(fieldName);
 	}
 
+	public @NotNull EntityMapper getMapper() {
+		EntityMapper mapper = this.mapper;
+		if (mapper == null)
+			this.mapper = mapper = new EntityMapper(this);
+		return mapper;
+	}
+
 	public @NotNull SQLCreateTableBuilder create() {
 		if (this.name.isEmpty())
 			throw new IllegalStateException("Cannot create model binding table");
@@ -95,14 +101,14 @@ public class TableEntity implements Iterable<@NotNull ColumnEntity> {
 				String foreignTableName = foreignKey.getTable().getName();
 				ColumnEntity foreignColumn = foreignKey.getReference();
 				String foreignColumnName = foreignColumn.getName();
-				type = getColumnSQLType(foreignColumn.getType());
+				type = foreignColumn.getCodec().getSQLType();
 				builder.constraint(SQLConstraintBuilder.foreignKey()
 						.name("fk_" + this.name + "_" + columnName + "_" + foreignTableName + "_" + foreignColumnName)
 						.column(columnName)
 						.references(foreignTableName)
 						.referencedColumn(foreignColumnName));
 			} else
-				type = getColumnSQLType(column.getType());
+				type = column.getCodec().getSQLType();
 			builder.column(columnName, type);
 		}
 		// TODO Set primary key on single column with AUTO_INCREMENT if necessary
@@ -206,25 +212,6 @@ public class TableEntity implements Iterable<@NotNull ColumnEntity> {
 		return this.type.hashCode();
 	}
 
-	private static @NotNull String getColumnSQLType(@NotNull Class<?> type) {
-		if (type == void.class || type == Void.class)
-			return "NULL";
-		if (type == String.class || type == Timestamp.class
-				|| type == Date.class || type == Time.class)
-			return "TEXT";
-		if (type == boolean.class || type == Boolean.class
-				|| type == byte.class || type == Byte.class
-				|| type == short.class || type == Short.class
-				|| type == int.class || type == Integer.class
-				|| type == long.class || type == Long.class)
-			return "INTEGER";
-		if (type == float.class || type == Float.class
-				|| type == double.class || type == Double.class
-				|| type == BigDecimal.class)
-			return "REAL";
-		return "BLOB";
-	}
-
 	public enum InsertMode {
 		GENERATE_PRIMARY,
 		INCLUDE_PRIMARY,
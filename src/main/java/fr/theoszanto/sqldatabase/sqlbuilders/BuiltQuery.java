@@ -0,0 +1,88 @@
+package fr.theoszanto.sqldatabase.sqlbuilders;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL statement along with the values bound to its {@code ?} parameters, in
+ * order, as built by {@link SQLBuilder#buildQuery()}.
+ *
+ * <p>Parameters of {@link SQLValue#PLACEHOLDER} values have no value yet and
+ * are given as {@link #PLACEHOLDER} until {@link #bind(Object...) bound} at
+ * execution.</p>
+ */
+public final class BuiltQuery {
+	private final @NotNull String sql;
+	private final @Nullable Object @NotNull[] params;
+	private final int placeholderCount;
+
+	/**
+	 * Parameter of a {@link SQLValue#PLACEHOLDER} value, to be given at execution.
+	 */
+	public static final @NotNull Object PLACEHOLDER = new Object() {
+		@Override
+		public String toString() {
+			return "?";
+		}
+	};
+
+	public BuiltQuery(@NotNull String sql, @NotNull List<@Nullable Object> params) {
+		this.sql = sql;
+		this.params = params.toArray();
+		int placeholderCount = 0;
+		for (Object param : this.params)
+			if (param == PLACEHOLDER)
+				placeholderCount++;
+		this.placeholderCount = placeholderCount;
+	}
+
+	@Contract(pure = true)
+	public @NotNull String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Get the parameters of this query, including {@link #PLACEHOLDER}s.
+	 */
+	@Contract(pure = true)
+	public @NotNull List<@Nullable Object> getParams() {
+		return Collections.unmodifiableList(Arrays.asList(this.params));
+	}
+
+	@Contract(pure = true)
+	public int getPlaceholderCount() {
+		return this.placeholderCount;
+	}
+
+	/**
+	 * Get the parameters of this query with its {@link #PLACEHOLDER}s replaced
+	 * by the given values, in order.
+	 *
+	 * @throws IllegalArgumentException If the count of values is not the count
+	 *                                  of placeholders
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public @Nullable Object @NotNull[] bind(@Nullable Object @NotNull... values) {
+		if (values.length != this.placeholderCount)
+			throw new IllegalArgumentException("Expected " + this.placeholderCount + " parameters but got " + values.length + " for query: " + this.sql);
+		Object[] params = this.params.clone();
+		if (this.placeholderCount != 0) {
+			int i = 0;
+			for (int j = 0; j < params.length; j++)
+				if (params[j] == PLACEHOLDER)
+					params[j] = values[i++];
+		}
+		return params;
+	}
+
+	@Override
+	@Contract(pure = true)
+	public @NotNull String toString() {
+		return this.sql;
+	}
+}
@@ -0,0 +1,18 @@
+package fr.theoszanto.sqldatabase.sqlbuilders;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated method does not modify its receiver: ignoring its result is
+ * a mistake. IDE inspections and static analyzers such as Error Prone and
+ * SpotBugs report ignored results of methods annotated with any annotation
+ * named {@code CheckReturnValue}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface CheckReturnValue {}
@@ -14,6 +14,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,7 +32,144 @@ public abstract class SQLBuilder {
 	protected SQLBuilder() {}
 
 	@Contract(value = " -> new", pure = true)
-	public abstract @NotNull String build();
+	public @NotNull String build() {
+		StringBuilder sql = new StringBuilder(this.lengthHint());
+		this.appendTo(sql, null);
+		return sql.toString();
+	}
+
+	/**
+	 * Build this statement along with the values bound to its parameters by
+	 * {@link SQLValue#param(Object)}, in order, so that statements differing
+	 * only by their values share the same SQL.
+	 */
+	@Contract(value = " -> new", pure = true)
+	public @NotNull BuiltQuery buildQuery() {
+		StringBuilder sql = new StringBuilder(this.lengthHint());
+		List<Object> params = new ArrayList<>();
+		this.appendTo(sql, params);
+		return new BuiltQuery(sql.toString(), params);
+	}
+
+	/**
+	 * Render this statement at the end of the given buffer, in a single pass.
+	 *
+	 * @param params The list to append the values bound to the parameters of
+	 *               this statement to, in order, or {@code null} to ignore them
+	 */
+	public abstract void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params);
+
+	/**
+	 * Get the shape of this statement, with its literals and parameters
+	 * normalized.
+	 *
+	 * @see #fingerprint(String)
+	 */
+	@Contract(value = " -> new", pure = true)
+	public @NotNull String fingerprint() {
+		return fingerprint(this.build());
+	}
+
+	/**
+	 * Get the shape of the given statement, for statements differing only by
+	 * their values to share the same fingerprint: string, blob and numeric
+	 * literals are replaced by {@code ?} and lists of {@code ?} collapse into a
+	 * single one. Quoted names are kept as is.
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public static @NotNull String fingerprint(@NotNull String sql) {
+		StringBuilder fingerprint = new StringBuilder(sql.length());
+		int n = sql.length();
+		int i = 0;
+		while (i < n) {
+			char c = sql.charAt(i);
+			if (c == QUOTE_NAME || c == '"' || c == '[') {
+				// Quoted name
+				int j = skipQuoted(sql, i + 1, c == '[' ? ']' : c);
+				fingerprint.append(sql, i, j);
+				i = j;
+			} else if (c == QUOTE_VAL || ((c == 'x' || c == 'X') && i + 1 < n && sql.charAt(i + 1) == QUOTE_VAL && !isNamePart(sql, i - 1))) {
+				// String or blob literal
+				appendParameter(fingerprint);
+				i = skipQuoted(sql, c == QUOTE_VAL ? i + 1 : i + 2, QUOTE_VAL);
+			} else if ((Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(sql.charAt(i + 1)))) && !isNamePart(sql, i - 1)
+					|| (c == '-' && i + 1 < n && Character.isDigit(sql.charAt(i + 1)) && isUnary(sql, i))) {
+				// Numeric literal, possibly negative
+				int j = i + 1;
+				while (j < n && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '.'))
+					j++;
+				appendParameter(fingerprint);
+				i = j;
+			} else if (c == '?') {
+				// Numbered parameters
+				int j = i + 1;
+				while (j < n && Character.isDigit(sql.charAt(j)))
+					j++;
+				appendParameter(fingerprint);
+				i = j;
+			} else {
+				fingerprint.append(c);
+				i++;
+			}
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Get the index following the given closing quote, escaped by doubling it
+	 * unless it is {@code ]}.
+	 */
+	private static int skipQuoted(@NotNull String sql, int start, char end) {
+		int n = sql.length();
+		for (int i = start; i < n; i++) {
+			if (sql.charAt(i) == end) {
+				if (end != ']' && i + 1 < n && sql.charAt(i + 1) == end)
+					i++;
+				else
+					return i + 1;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Whether the {@code -} at the given index is a sign rather than a
+	 * subtraction.
+	 */
+	private static boolean isUnary(@NotNull String sql, int i) {
+		for (int j = i - 1; j >= 0; j--) {
+			char c = sql.charAt(j);
+			if (!Character.isWhitespace(c))
+				return "(,=<>!+-*/%|&".indexOf(c) != -1;
+		}
+		return true;
+	}
+
+	private static boolean isNamePart(@NotNull String sql, int i) {
+		if (i < 0)
+			return false;
+		char c = sql.charAt(i);
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * Append a {@code ?} unless it ends a list of {@code ?} already.
+	 */
+	private static void appendParameter(@NotNull StringBuilder fingerprint) {
+		int end = fingerprint.length();
+		if (end >= 3 && fingerprint.charAt(end - 1) == ' ' && fingerprint.charAt(end - 2) == ',' && fingerprint.charAt(end - 3) == '?')
+			fingerprint.setLength(end - 2);
+		else
+			fingerprint.append('?');
+	}
+
+	/**
+	 * Get the expected length of this statement, to size its rendering buffer.
+	 */
+	@Contract(pure = true)
+	protected int lengthHint() {
+		return 64;
+	}
 
 	@Override
 	@Contract(value = " -> new", pure = true)
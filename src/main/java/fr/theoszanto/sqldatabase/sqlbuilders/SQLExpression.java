@@ -0,0 +1,187 @@
+package fr.theoszanto.sqldatabase.sqlbuilders;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Immutable node of an SQL expression tree, made of text, fragments with
+ * bound parameters and sub-expressions.
+ *
+ * <p>Composing expressions shares their nodes instead of copying their text,
+ * and rendering walks the tree once without recursion, so that long chains
+ * of operators neither copy quadratically nor overflow the stack. The length
+ * of the rendered SQL and the structural hash code are computed on
+ * construction.</p>
+ */
+public final class SQLExpression {
+	private final @NotNull Object @NotNull[] parts;
+	private final int length;
+	private final int hash;
+
+	private SQLExpression(@NotNull Object @NotNull[] parts) {
+		this.parts = parts;
+		int length = 0;
+		int hash = 1;
+		for (Object part : parts) {
+			if (part instanceof String)
+				length += ((String) part).length();
+			else if (part instanceof SQLExpression)
+				length += ((SQLExpression) part).length;
+			else
+				length += ((Fragment) part).sql.length();
+			hash = 31 * hash + part.hashCode();
+		}
+		this.length = length;
+		this.hash = hash;
+	}
+
+	/**
+	 * Create an expression of the given parts, each being either a
+	 * {@link String} of SQL or an {@link SQLExpression}.
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public static @NotNull SQLExpression of(@NotNull Object @NotNull... parts) {
+		for (Object part : parts)
+			if (!(part instanceof String) && !(part instanceof SQLExpression))
+				throw new IllegalArgumentException("Invalid expression part: " + part);
+		return new SQLExpression(parts.clone());
+	}
+
+	@Contract(value = "_ -> new", pure = true)
+	public static @NotNull SQLExpression text(@NotNull String sql) {
+		return new SQLExpression(new Object[] { sql });
+	}
+
+	/**
+	 * Create an expression of already rendered SQL along with the values bound
+	 * to its parameters, in order.
+	 */
+	@Contract(value = "_, _ -> new", pure = true)
+	public static @NotNull SQLExpression fragment(@NotNull String sql, @NotNull List<@Nullable Object> params) {
+		return new SQLExpression(new Object[] { params.isEmpty() ? sql : new Fragment(sql, params.toArray()) });
+	}
+
+	/**
+	 * Get the length of the rendered SQL of this expression.
+	 */
+	@Contract(pure = true)
+	public int length() {
+		return this.length;
+	}
+
+	/**
+	 * Render this expression at the end of the given buffer.
+	 *
+	 * @param params The list to append the values bound to the parameters of
+	 *               this expression to, in order, or {@code null} to ignore them
+	 */
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
+		this.walk(sql, params);
+	}
+
+	/**
+	 * Get the values bound to the parameters of this expression, in order.
+	 */
+	@Contract(value = " -> new", pure = true)
+	public @NotNull List<@Nullable Object> getParams() {
+		List<Object> params = new ArrayList<>();
+		this.walk(null, params);
+		return params;
+	}
+
+	private void walk(@Nullable StringBuilder sql, @Nullable List<@Nullable Object> params) {
+		Deque<Object> stack = new ArrayDeque<>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Object part = stack.pop();
+			if (part instanceof String) {
+				if (sql != null)
+					sql.append((String) part);
+			} else if (part instanceof SQLExpression) {
+				Object[] parts = ((SQLExpression) part).parts;
+				for (int i = parts.length - 1; i >= 0; i--)
+					stack.push(parts[i]);
+			} else {
+				Fragment fragment = (Fragment) part;
+				if (sql != null)
+					sql.append(fragment.sql);
+				if (params != null)
+					Collections.addAll(params, fragment.params);
+			}
+		}
+	}
+
+	@Override
+	@Contract(value = " -> new", pure = true)
+	public @NotNull String toString() {
+		StringBuilder sql = new StringBuilder(this.length);
+		this.walk(sql, null);
+		return sql.toString();
+	}
+
+	/**
+	 * Compare the structure of both expressions, without recursion.
+	 */
+	@Override
+	public boolean equals(@Nullable Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Deque<SQLExpression> stack = new ArrayDeque<>();
+		stack.push(this);
+		stack.push((SQLExpression) o);
+		while (!stack.isEmpty()) {
+			SQLExpression e1 = stack.pop();
+			SQLExpression e2 = stack.pop();
+			if (e1 == e2)
+				continue;
+			if (e1.hash != e2.hash || e1.length != e2.length || e1.parts.length != e2.parts.length)
+				return false;
+			for (int i = 0; i < e1.parts.length; i++) {
+				Object p1 = e1.parts[i];
+				Object p2 = e2.parts[i];
+				if (p1 instanceof SQLExpression && p2 instanceof SQLExpression) {
+					stack.push((SQLExpression) p1);
+					stack.push((SQLExpression) p2);
+				} else if (!p1.equals(p2))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+	private static final class Fragment {
+		private final @NotNull String sql;
+		private final @Nullable Object @NotNull[] params;
+
+		private Fragment(@NotNull String sql, @Nullable Object @NotNull[] params) {
+			this.sql = sql;
+			this.params = params;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Fragment fragment = (Fragment) o;
+			return this.sql.equals(fragment.sql) && Arrays.deepEquals(this.params, fragment.params);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.sql.hashCode() + Arrays.deepHashCode(this.params);
+		}
+	}
+}
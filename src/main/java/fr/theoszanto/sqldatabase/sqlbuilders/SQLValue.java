@@ -1,15 +1,24 @@
 package fr.theoszanto.sqldatabase.sqlbuilders;
 
 import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLSelectBuilder;
-import fr.theoszanto.sqldatabase.utils.CollectionsUtils;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable SQL value, backed by an {@link SQLExpression}: operators return
+ * new values sharing the expressions of their operands.
+ *
+ * <p>Operators do not modify this value, so their result must be used:
+ * {@code value = value.add(other)}.</p>
+ */
 public class SQLValue {
-	private final @NotNull StringBuilder value;
+	private final @NotNull SQLExpression expression;
 
-	public static final @NotNull SQLValue PLACEHOLDER = new SQLValue("?");
+	public static final @NotNull SQLValue PLACEHOLDER = new SQLValue(SQLExpression.fragment("?", Collections.singletonList(BuiltQuery.PLACEHOLDER)));
 	public static final @NotNull SQLValue FALSE = new SQLValue("FALSE");
 	public static final @NotNull SQLValue TRUE = new SQLValue("TRUE");
 	public static final @NotNull SQLValue NULL = new SQLValue("NULL");
@@ -18,75 +27,101 @@ public class SQLValue {
 	public static final @NotNull SQLValue COUNT_ALL = SQLValue.function("count", SQLValue.ALL);
 
 	private SQLValue(@NotNull String value) {
-		this.value = new StringBuilder(value.length()).append(value);
+		this(SQLExpression.text(value));
+	}
+
+	private SQLValue(@NotNull SQLExpression expression) {
+		this.expression = expression;
 	}
 
-	@Contract(value = "_, _ -> this", mutates = "this")
+	@Contract(value = "_, _ -> new", pure = true)
 	private @NotNull SQLValue operator(@NotNull String operator, @NotNull SQLValue value) {
-		this.value.insert(0, '(').append(") ").append(operator).append(" (").append(value).append(')');
-		return this;
+		return new SQLValue(SQLExpression.of("(", this.expression, ") " + operator + " (", value.expression, ")"));
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue add(@NotNull SQLValue value) {
 		return this.operator("+", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue subtract(@NotNull SQLValue value) {
 		return this.operator("-", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue multiply(@NotNull SQLValue value) {
 		return this.operator("*", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue divide(@NotNull SQLValue value) {
 		return this.operator("/", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue mod(@NotNull SQLValue value) {
 		return this.operator("%", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue concat(@NotNull SQLValue value) {
 		return this.operator("||", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue binaryAnd(@NotNull SQLValue value) {
 		return this.operator("&", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue binaryOr(@NotNull SQLValue value) {
 		return this.operator("|", value);
 	}
 
-	@Contract(value = " -> this", mutates = "this")
+	@Contract(value = " -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue binaryNot() {
-		this.value.insert(0, "~(").append(')');
-		return this;
+		return new SQLValue(SQLExpression.of("~(", this.expression, ")"));
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue binaryLeftShift(@NotNull SQLValue value) {
 		return this.operator("<<", value);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLValue binaryRightShift(@NotNull SQLValue value) {
 		return this.operator(">>", value);
 	}
 
+	@Contract(pure = true)
+	public @NotNull SQLExpression getExpression() {
+		return this.expression;
+	}
+
+	/**
+	 * Get the values bound to the parameters of this value, in order.
+	 */
+	@Contract(value = " -> new", pure = true)
+	public @NotNull List<@Nullable Object> getParams() {
+		return this.expression.getParams();
+	}
+
 	@Override
 	@Contract(value = " -> new", pure = true)
 	public @NotNull String toString() {
-		return this.value.toString();
+		return this.expression.toString();
 	}
 
 	@Override
@@ -94,12 +129,12 @@ public class SQLValue {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		SQLValue sqlValue = (SQLValue) o;
-		return this.toString().equals(sqlValue.toString());
+		return this.expression.equals(sqlValue.expression);
 	}
 
 	@Override
 	public int hashCode() {
-		return this.toString().hashCode();
+		return this.expression.hashCode();
 	}
 
 	@Contract(value = "_ -> new", pure = true)
@@ -112,6 +147,16 @@ public class SQLValue {
 		return new SQLValue(SQLBuilder.quoteVal(value));
 	}
 
+	/**
+	 * Bind the given value to a {@code ?} parameter instead of inlining it.
+	 *
+	 * @see SQLBuilder#buildQuery()
+	 */
+	@Contract(value = "_ -> new", pure = true)
+	public static @NotNull SQLValue param(@Nullable Object value) {
+		return new SQLValue(SQLExpression.fragment("?", Collections.singletonList(value)));
+	}
+
 	@Contract(value = "_ -> new", pure = true)
 	public static @NotNull SQLValue column(@NotNull String name) {
 		return column(null, name);
@@ -125,12 +170,24 @@ public class SQLValue {
 
 	@Contract(value = "_, _ -> new", pure = true)
 	public static @NotNull SQLValue function(@NotNull String name, @NotNull SQLValue @NotNull... arguments) {
-		return new SQLValue(name + "(" + CollectionsUtils.join(", ", arguments) + ")");
-	}
-
+		Object[] parts = new Object[Math.max(2 * arguments.length + 1, 2)];
+		parts[0] = name + "(";
+		for (int i = 0; i < arguments.length; i++) {
+			parts[2 * i + 1] = arguments[i].expression;
+			parts[2 * i + 2] = i == arguments.length - 1 ? ")" : ", ";
+		}
+		if (arguments.length == 0)
+			parts[1] = ")";
+		return new SQLValue(SQLExpression.of(parts));
+	}
+
+	/**
+	 * Create a sub-query value from the current state of the given select.
+	 */
 	@Contract(value = "_ -> new", pure = true)
 	public static @NotNull SQLValue select(@NotNull SQLSelectBuilder select) {
-		return new SQLValue("(" + select + ")");
+		BuiltQuery query = select.buildQuery();
+		return new SQLValue(SQLExpression.fragment("(" + query.getSql() + ")", query.getParams()));
 	}
 
 	@Contract(value = "_ -> new", pure = true)
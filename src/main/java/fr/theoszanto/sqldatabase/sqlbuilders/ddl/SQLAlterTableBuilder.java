@@ -6,6 +6,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class SQLAlterTableBuilder extends SQLBuilder {
 	private @Nullable String table;
 	private @Nullable String renameTable;
@@ -50,7 +52,7 @@ public class SQLAlterTableBuilder extends SQLBuilder {
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot alter table without name. You must call .table(name) to specify the table name");
 		if (invalidActions(this.renameTable, this.renameColumn, this.addColumn, this.dropColumn))
@@ -68,7 +70,7 @@ public class SQLAlterTableBuilder extends SQLBuilder {
 		else
 			throw new IllegalStateException("You must choose an action to perform. It must be either .renameTable(newName), .renameColumn(column, newName), .addColumn(column, ...) or .dropColumn(column)");
 
-		return "ALTER TABLE " + quoteName(this.table) + action;
+		sql.append("ALTER TABLE " + quoteName(this.table) + action);
 	}
 
 	private static boolean invalidActions(@Nullable Object @NotNull... actions) {
@@ -8,6 +8,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
 import java.util.Map;
 
 public class SQLCreateIndexBuilder extends SQLBuilder {
@@ -70,7 +71,7 @@ public class SQLCreateIndexBuilder extends SQLBuilder {
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.index == null)
 			throw new IllegalStateException("Cannot create index without name. You must call .index(name) to specify the index name");
 		if (this.on == null)
@@ -90,6 +91,6 @@ public class SQLCreateIndexBuilder extends SQLBuilder {
 		// Index condition
 		String where = this.where == null ? "" : " WHERE " + this.where;
 
-		return "CREATE " + unique + "INDEX " + ifNotExists + quoteName(this.index) + " ON " + quoteName(this.on) + " " + columns + where;
+		sql.append("CREATE " + unique + "INDEX " + ifNotExists + quoteName(this.index) + " ON " + quoteName(this.on) + " " + columns + where);
 	}
 }
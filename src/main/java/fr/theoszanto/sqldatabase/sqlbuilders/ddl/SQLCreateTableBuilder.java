@@ -10,7 +10,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -20,8 +21,8 @@ public class SQLCreateTableBuilder extends SQLBuilder {
 	private @Nullable String table;
 	private @Nullable SQLSelectBuilder as;
 	private final @NotNull List<@NotNull Column> columns = new ArrayList<>();
-	private final @NotNull Set<@NotNull SQLConstraintBuilder<?>> constraints = new HashSet<>();
-	private final @NotNull Set<@NotNull Option> options = new HashSet<>();
+	private final @NotNull Set<@NotNull SQLConstraintBuilder<?>> constraints = new LinkedHashSet<>();
+	private final @NotNull Set<@NotNull Option> options = EnumSet.noneOf(Option.class);
 
 	@Contract(value = " -> this", mutates = "this")
 	public @NotNull SQLCreateTableBuilder temporary() {
@@ -81,7 +82,7 @@ public class SQLCreateTableBuilder extends SQLBuilder {
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot create table without name. You must call .table(name) to specify the table name");
 		if (this.as == null && this.columns.isEmpty())
@@ -111,7 +112,7 @@ public class SQLCreateTableBuilder extends SQLBuilder {
 		// Table options
 		String options = CollectionsUtils.join(", ", " ", "", this.options);
 
-		return "CREATE " + temporary + "TABLE " + ifNotExists + quoteName(this.table) + " " + definition + options;
+		sql.append("CREATE " + temporary + "TABLE " + ifNotExists + quoteName(this.table) + " " + definition + options);
 	}
 
 	public enum Option {
@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class SQLDropIndexBuilder extends SQLBuilder {
 	private boolean ifExists = false;
 	private @Nullable String index;
@@ -27,13 +29,13 @@ public class SQLDropIndexBuilder extends SQLBuilder {
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.index == null)
 			throw new IllegalStateException("Cannot drop index without name. You must call .index(name) to specify the index name");
 
 		// Drop only if exists
 		String ifExists = this.ifExists ? "IF EXISTS " : "";
 
-		return "DROP INDEX " + ifExists + quoteName(this.index);
+		sql.append("DROP INDEX " + ifExists + quoteName(this.index));
 	}
 }
@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class SQLDropTableBuilder extends SQLBuilder {
 	private boolean ifExists = false;
 	private @Nullable String table;
@@ -27,13 +29,13 @@ public class SQLDropTableBuilder extends SQLBuilder {
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot drop table without name. You must call .table(name) to specify the table name");
 
 		// Drop only if exists
 		String ifExists = this.ifExists ? "IF EXISTS " : "";
 
-		return "DROP TABLE " + ifExists + quoteName(this.table);
+		sql.append("DROP TABLE " + ifExists + quoteName(this.table));
 	}
 }
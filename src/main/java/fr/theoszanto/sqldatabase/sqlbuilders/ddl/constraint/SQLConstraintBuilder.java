@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public abstract class SQLConstraintBuilder<T extends SQLConstraintBuilder<T>> extends SQLBuilder {
 	private @Nullable String name;
 
@@ -16,9 +18,11 @@ public abstract class SQLConstraintBuilder<T extends SQLConstraintBuilder<T>> ex
 	}
 
 	@Override
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		String constraint = this.buildConstraint();
-		return this.name == null ? constraint : "CONSTRAINT " + quoteName(this.name) + " " + constraint;
+		if (this.name != null)
+			sql.append("CONSTRAINT ").append(quoteName(this.name)).append(' ');
+		sql.append(constraint);
 	}
 
 	protected abstract @NotNull String buildConstraint();
@@ -1,51 +1,88 @@
 package fr.theoszanto.sqldatabase.sqlbuilders.dml;
 
+import fr.theoszanto.sqldatabase.sqlbuilders.CheckReturnValue;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLBuilder;
+import fr.theoszanto.sqldatabase.sqlbuilders.SQLExpression;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLValue;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Immutable SQL condition, backed by an {@link SQLExpression}: combinations
+ * return new conditions sharing the expressions of their operands.
+ *
+ * <p>Combinations do not modify this condition, so their result must be used:
+ * {@code condition = condition.and(other)}.</p>
+ */
 public class SQLConditionBuilder extends SQLBuilder {
-	private final @NotNull StringBuilder condition;
+	private final @NotNull SQLExpression condition;
 
 	private SQLConditionBuilder(@NotNull String condition) {
-		this.condition = new StringBuilder(condition.length()).append(condition);
+		this(SQLExpression.text(condition));
 	}
 
-	@Contract(value = "_, _ -> this", mutates = "this")
+	private SQLConditionBuilder(@NotNull SQLExpression condition) {
+		this.condition = condition;
+	}
+
+	@Contract(value = "_, _ -> new", pure = true)
 	private @NotNull SQLConditionBuilder combinaison(@NotNull String operator, @NotNull SQLConditionBuilder condition) {
-		this.condition.insert(0, '(').append(") ").append(operator).append(" (").append(condition).append(')');
-		return this;
+		return new SQLConditionBuilder(SQLExpression.of("(", this.condition, ") " + operator + " (", condition.condition, ")"));
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLConditionBuilder and(@NotNull SQLConditionBuilder condition) {
 		return this.combinaison("AND", condition);
 	}
 
-	@Contract(value = "_ -> this", mutates = "this")
+	@Contract(value = "_ -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLConditionBuilder or(@NotNull SQLConditionBuilder condition) {
 		return this.combinaison("OR", condition);
 	}
 
-	@Contract(value = " -> this", mutates = "this")
+	@Contract(value = " -> new", pure = true)
+	@CheckReturnValue
 	public @NotNull SQLConditionBuilder not() {
-		this.condition.insert(0, "NOT (").append(')');
-		return this;
+		return new SQLConditionBuilder(SQLExpression.of("NOT (", this.condition, ")"));
+	}
+
+	@Contract(pure = true)
+	public @NotNull SQLExpression getExpression() {
+		return this.condition;
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
-		return this.condition.toString();
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
+		this.condition.appendTo(sql, params);
+	}
+
+	@Override
+	protected int lengthHint() {
+		return this.condition.length();
+	}
+
+	@Override
+	public boolean equals(@Nullable Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		SQLConditionBuilder that = (SQLConditionBuilder) o;
+		return this.condition.equals(that.condition);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.condition.hashCode();
 	}
 
 	@Contract(value = "_, _, _ -> new", pure = true)
 	private static @NotNull SQLConditionBuilder comparison(@NotNull SQLValue val1, @NotNull String operator, @NotNull SQLValue val2) {
-		return new SQLConditionBuilder(val1 + " " + operator + " " + val2);
+		return new SQLConditionBuilder(SQLExpression.of(val1.getExpression(), " " + operator + " ", val2.getExpression()));
 	}
 
 	@Contract(value = "_, _ -> new", pure = true)
@@ -85,7 +122,21 @@ public class SQLConditionBuilder extends SQLBuilder {
 
 	@Contract(value = "_, _, _ -> new", pure = true)
 	public static @NotNull SQLConditionBuilder like(@NotNull SQLValue value, @NotNull String pattern, char escape) {
-		return new SQLConditionBuilder(value + " LIKE " + SQLValue.quoted(pattern) + " ESCAPE " + SQLValue.quoted(escape));
+		return like(value, SQLValue.quoted(pattern), escape);
+	}
+
+	/**
+	 * Match the given value against a pattern value, such as a
+	 * {@link SQLValue#param(Object) parameter}, rather than an inlined string.
+	 */
+	@Contract(value = "_, _ -> new", pure = true)
+	public static @NotNull SQLConditionBuilder like(@NotNull SQLValue value, @NotNull SQLValue pattern) {
+		return like(value, pattern, DEFAULT_LIKE_ESCAPE_CHAR);
+	}
+
+	@Contract(value = "_, _, _ -> new", pure = true)
+	public static @NotNull SQLConditionBuilder like(@NotNull SQLValue value, @NotNull SQLValue pattern, char escape) {
+		return new SQLConditionBuilder(SQLExpression.of(value.getExpression(), " LIKE ", pattern.getExpression(), " ESCAPE " + SQLValue.quoted(escape)));
 	}
 
 	@Contract(value = "_, _ -> new", pure = true)
@@ -93,6 +144,25 @@ public class SQLConditionBuilder extends SQLBuilder {
 		return comparison(value, "IN", SQLValue.list(values));
 	}
 
+	/**
+	 * Row value membership test: {@code value IN (VALUES (row1), (row2), ...)},
+	 * for comparing multiple columns at once with {@code value} being a
+	 * {@link SQLValue#list(SQLValue...) list}.
+	 */
+	@Contract(value = "_, _ -> new", pure = true)
+	public static @NotNull SQLConditionBuilder inValues(@NotNull SQLValue value, @NotNull SQLValue @NotNull[] @NotNull... rows) {
+		if (rows.length == 0)
+			throw new IllegalArgumentException("Cannot build VALUES with no rows");
+		Object[] parts = new Object[2 * rows.length + 2];
+		parts[0] = value.getExpression();
+		parts[1] = " IN (VALUES ";
+		for (int i = 0; i < rows.length; i++) {
+			parts[2 * i + 2] = SQLValue.list(rows[i]).getExpression();
+			parts[2 * i + 3] = i == rows.length - 1 ? ")" : ", ";
+		}
+		return new SQLConditionBuilder(SQLExpression.of(parts));
+	}
+
 	@Contract(value = "_, _ -> new", pure = true)
 	public static @NotNull SQLConditionBuilder inSelect(@NotNull SQLValue value, @NotNull SQLSelectBuilder select) {
 		return comparison(value, "IN", SQLValue.select(select));
@@ -100,12 +170,12 @@ public class SQLConditionBuilder extends SQLBuilder {
 
 	@Contract(value = "_ -> new", pure = true)
 	public static @NotNull SQLConditionBuilder exists(@NotNull SQLSelectBuilder select) {
-		return new SQLConditionBuilder("EXISTS (" + select + ")");
+		return new SQLConditionBuilder(SQLExpression.of("EXISTS ", SQLValue.select(select).getExpression()));
 	}
 
 	@Contract(value = "_, _, _ -> new", pure = true)
 	public static @NotNull SQLConditionBuilder between(@NotNull SQLValue value, @NotNull SQLValue min, @NotNull SQLValue max) {
-		return new SQLConditionBuilder(value + " BETWEEN " + min + " AND " + max);
+		return new SQLConditionBuilder(SQLExpression.of(value.getExpression(), " BETWEEN ", min.getExpression(), " AND ", max.getExpression()));
 	}
 
 	@Contract(value = "_ -> new", pure = true)
@@ -138,13 +208,15 @@ public class SQLConditionBuilder extends SQLBuilder {
 				throw new IllegalArgumentException("Cannot \"" + keyword + "\" with no conditions");
 			if (conditions.size() == 1)
 				return conditions.get(0);
-			SQLConditionBuilder result = new SQLConditionBuilder("(");
-			StringBuilder builder = result.condition;
-			builder.append(conditions.get(0));
-			for (int i = 1; i < conditions.size(); i++)
-				builder.append(") ").append(keyword).append(" (").append(conditions.get(i));
-			builder.append(')');
-			return result;
+			// Single node, whatever the count of conditions
+			Object[] parts = new Object[2 * conditions.size() + 1];
+			String separator = ") " + keyword + " (";
+			parts[0] = "(";
+			for (int i = 0; i < conditions.size(); i++) {
+				parts[2 * i + 1] = conditions.get(i).condition;
+				parts[2 * i + 2] = i == conditions.size() - 1 ? ")" : separator;
+			}
+			return new SQLConditionBuilder(SQLExpression.of(parts));
 		}
 
 		public static @NotNull SQLConditionBuilder and(@NotNull List<@NotNull SQLConditionBuilder> conditions) {
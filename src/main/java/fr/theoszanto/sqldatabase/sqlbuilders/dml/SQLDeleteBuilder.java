@@ -4,6 +4,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class SQLDeleteBuilder extends SQLWOLOARCBuilder<SQLDeleteBuilder> {
 	private @Nullable String table;
 
@@ -14,17 +16,15 @@ public class SQLDeleteBuilder extends SQLWOLOARCBuilder<SQLDeleteBuilder> {
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot delete data from no table. You must call .from(table) to specify table");
 
 		// Delete from table
-		String table = quoteName(this.table);
+		sql.append("DELETE FROM ").append(quoteName(this.table));
 
 		// Where Order Limit Offset
-		String wolo = super.build();
-
-		return "DELETE FROM " + table + wolo;
+		this.appendWhere(sql, params);
+		this.appendOrderLimit(sql);
 	}
 }
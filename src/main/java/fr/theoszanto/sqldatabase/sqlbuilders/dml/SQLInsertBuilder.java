@@ -15,12 +15,13 @@ public abstract class SQLInsertBuilder<T extends SQLInsertBuilder<T>> extends SQ
 		return (T) this;
 	}
 
-	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	/**
+	 * Render the {@code INSERT INTO} clause of this statement.
+	 */
+	protected void appendInsertInto(@NotNull StringBuilder sql) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot insert data without table. You must call .into(table) to specify table");
 
-		return "INSERT INTO " + quoteName(this.table);
+		sql.append("INSERT INTO ").append(quoteName(this.table));
 	}
 }
@@ -4,6 +4,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class SQLInsertSelectBuilder extends SQLInsertBuilder<SQLInsertSelectBuilder> {
 	private @Nullable SQLSelectBuilder select;
 
@@ -14,11 +16,12 @@ public class SQLInsertSelectBuilder extends SQLInsertBuilder<SQLInsertSelectBuil
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.select == null)
 			throw new IllegalStateException("Cannot insert data without selection source. You must call .select(select) at least once to specify data to insert");
 
-		return super.build() + " " + this.select;
+		this.appendInsertInto(sql);
+		sql.append(' ');
+		this.select.appendTo(sql, params);
 	}
 }
@@ -1,9 +1,11 @@
 package fr.theoszanto.sqldatabase.sqlbuilders.dml;
 
+import fr.theoszanto.sqldatabase.sqlbuilders.SQLBuilder;
 import fr.theoszanto.sqldatabase.sqlbuilders.SQLValue;
 import fr.theoszanto.sqldatabase.utils.CollectionsUtils;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +14,7 @@ import java.util.Map;
 public class SQLInsertValuesBuilder extends SQLInsertBuilder<SQLInsertValuesBuilder> {
 	private final @NotNull Map<@NotNull String, @NotNull List<@NotNull SQLValue>> values = CollectionsUtils.orderedMap();
 	private final @NotNull List<String> onConflict = new ArrayList<>();
+	private final @NotNull List<String> returning = new ArrayList<>();
 
 	@Contract(value = "_, _ -> this", mutates = "this")
 	public @NotNull SQLInsertValuesBuilder value(@NotNull String column, @NotNull SQLValue value) {
@@ -25,9 +28,14 @@ public class SQLInsertValuesBuilder extends SQLInsertBuilder<SQLInsertValuesBuil
 		return this;
 	}
 
+	@Contract(value = "_ -> this", mutates = "this")
+	public @NotNull SQLInsertValuesBuilder returning(@NotNull String column) {
+		this.returning.add(column);
+		return this;
+	}
+
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		int size = 0;
 		for (Map.Entry<String, List<SQLValue>> value : this.values.entrySet()) {
 			int s = value.getValue().size();
@@ -37,37 +45,60 @@ public class SQLInsertValuesBuilder extends SQLInsertBuilder<SQLInsertValuesBuil
 				throw new IllegalStateException("Incoherent count of values");
 		}
 
-		String values;
+		this.appendInsertInto(sql);
+
 		if (this.values.isEmpty())
-			values = " DEFAULT VALUES";
+			sql.append(" DEFAULT VALUES");
 		else {
-			List<String> columnsList = new ArrayList<>();
-			List<List<String>> valuesLists = new ArrayList<>();
-			for (Map.Entry<String, List<SQLValue>> value : this.values.entrySet()) {
-				columnsList.add(quoteName(value.getKey()));
-				List<SQLValue> vals = value.getValue();
-				for (int i = 0; i < vals.size(); i++) {
-					List<String> v;
-					if (i < valuesLists.size())
-						v = valuesLists.get(i);
-					else
-						valuesLists.add(v = new ArrayList<>());
-					v.add(vals.get(i).toString());
+			// Columns
+			sql.append(" (");
+			boolean first = true;
+			for (String column : this.values.keySet()) {
+				if (!first)
+					sql.append(", ");
+				first = false;
+				sql.append(quoteName(column));
+			}
+
+			// Values, row by row
+			sql.append(") VALUES ");
+			List<List<SQLValue>> columns = new ArrayList<>(this.values.values());
+			for (int i = 0; i < size; i++) {
+				sql.append(i == 0 ? "(" : ", (");
+				for (int j = 0; j < columns.size(); j++) {
+					if (j != 0)
+						sql.append(", ");
+					columns.get(j).get(i).getExpression().appendTo(sql, params);
 				}
+				sql.append(')');
 			}
-			List<String> valuesList = new ArrayList<>();
-			for (List<String> vals : valuesLists)
-				valuesList.add("(" + String.join(", ", vals) + ")");
-			values = " (" + String.join(", ", columnsList) + ") VALUES " + String.join(", ", valuesList);
 
-			if (valuesLists.size() == 1 && !this.onConflict.isEmpty()) {
-				List<String> updates = new ArrayList<>();
-				for (String column : columnsList)
-					updates.add(column + " = excluded." + column);
-				values += " ON CONFLICT (" + String.join(", ", this.onConflict) + ") DO UPDATE SET " + String.join(", ", updates);
+			if (size == 1 && !this.onConflict.isEmpty()) {
+				sql.append(" ON CONFLICT (").append(String.join(", ", this.onConflict)).append(") DO UPDATE SET ");
+				first = true;
+				for (String column : this.values.keySet()) {
+					if (!first)
+						sql.append(", ");
+					first = false;
+					String quoted = quoteName(column);
+					sql.append(quoted).append(" = excluded.").append(quoted);
+				}
 			}
 		}
 
-		return super.build() + values;
+		// Returning inserted values
+		if (!this.returning.isEmpty())
+			sql.append(CollectionsUtils.join(", ", " RETURNING ", "", this.returning, SQLBuilder::quoteName));
+	}
+
+	@Override
+	protected int lengthHint() {
+		int length = 64;
+		for (Map.Entry<String, List<SQLValue>> column : this.values.entrySet()) {
+			length += column.getKey().length() + 4;
+			for (SQLValue value : column.getValue())
+				length += value.getExpression().length() + 2;
+		}
+		return length;
 	}
 }
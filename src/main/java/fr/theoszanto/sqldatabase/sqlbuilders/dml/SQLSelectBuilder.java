@@ -8,14 +8,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SQLSelectBuilder extends SQLWOLOBuilder<SQLSelectBuilder> {
 	private boolean distinct = false;
-	private final @NotNull Map<@NotNull SQLValue, @Nullable String> columns = new HashMap<>();
-	private final @NotNull Map<@NotNull SQLValue, @Nullable String> tables = new HashMap<>();
+	private final @NotNull Map<@NotNull SQLValue, @Nullable String> columns = CollectionsUtils.orderedMap();
+	private final @NotNull Map<@NotNull SQLValue, @Nullable String> tables = CollectionsUtils.orderedMap();
+	private final @NotNull Set<@NotNull String> tableNames = new LinkedHashSet<>();
 	private final @NotNull List<@NotNull SQLJoinBuilder<?>> joins = new ArrayList<>();
 	private final @NotNull List<@NotNull String> groups = new ArrayList<>();
 	private @Nullable SQLConditionBuilder having;
@@ -60,6 +62,7 @@ public class SQLSelectBuilder extends SQLWOLOBuilder<SQLSelectBuilder> {
 	@Contract(value = "_, _ -> this", mutates = "this")
 	public @NotNull SQLSelectBuilder from(@NotNull String table, @Nullable String alias) {
 		this.tables.put(SQLValue.column(table), alias);
+		this.tableNames.add(table);
 		return this;
 	}
 
@@ -81,48 +84,81 @@ public class SQLSelectBuilder extends SQLWOLOBuilder<SQLSelectBuilder> {
 		return this;
 	}
 
-	@Override
+	/**
+	 * Get the names of the tables this query reads from, that is its
+	 * {@code FROM} and {@code JOIN} tables. Tables only read by sub-queries
+	 * are not included.
+	 */
 	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public @NotNull Set<@NotNull String> getTables() {
+		Set<String> tables = new LinkedHashSet<>(this.tableNames);
+		for (SQLJoinBuilder<?> join : this.joins)
+			if (join.getTable() != null)
+				tables.add(join.getTable());
+		return tables;
+	}
+
+	@Override
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.having != null && this.groups.isEmpty())
 			throw new IllegalStateException("Cannot specify HAVING clause without GROUP BY. You must call .group(column) at least once to use it");
 
 		// Distinct select
-		String distinct = this.distinct ? "DISTINCT " : "";
+		sql.append(this.distinct ? "SELECT DISTINCT " : "SELECT ");
 
 		// Columns to select
-		String columns = this.columns.isEmpty() ? "*" : joinAlias(this.columns);
-
-		// Table from select
-		String tables = joinAlias(this.tables);
+		if (this.columns.isEmpty())
+			sql.append('*');
+		else
+			appendAliases(sql, this.columns, params);
 
 		// Select from
-		String from = this.tables.isEmpty() ? "" : " FROM " + tables;
+		if (!this.tables.isEmpty()) {
+			sql.append(" FROM ");
+			appendAliases(sql, this.tables, params);
+		}
 
 		// Join other tables
-		String joins = this.joins.isEmpty() ? "" : " " + CollectionsUtils.join(" ", this.joins);
+		for (SQLJoinBuilder<?> join : this.joins) {
+			sql.append(' ');
+			join.appendTo(sql, params);
+		}
 
-		// Where Order Limit Offset
-		String wolo = super.build();
+		// Where condition
+		this.appendWhere(sql, params);
 
 		// Group select
-		String groups = this.groups.isEmpty() ? "" : " GROUP BY " + QUOTE_NAME + String.join(QUOTE_NAME + ", " + QUOTE_NAME, this.groups) + QUOTE_NAME;
+		if (!this.groups.isEmpty())
+			sql.append(" GROUP BY ").append(QUOTE_NAME).append(String.join(QUOTE_NAME + ", " + QUOTE_NAME, this.groups)).append(QUOTE_NAME);
 
 		// Having group condition
-		String having = this.having == null ? "" : " HAVING " + this.having;
+		if (this.having != null) {
+			sql.append(" HAVING ");
+			this.having.appendTo(sql, params);
+		}
 
-		return "SELECT " + distinct + columns + from + joins + wolo + groups + having;
+		// Order Limit Offset
+		this.appendOrderLimit(sql);
+	}
+
+	@Override
+	protected int lengthHint() {
+		int length = super.lengthHint();
+		for (SQLValue column : this.columns.keySet())
+			length += column.getExpression().length() + 16;
+		return length;
 	}
 
-	private static @NotNull String joinAlias(@NotNull Map<@NotNull SQLValue, @Nullable String> values) {
-		List<String> valuesWithAlias = new ArrayList<>();
+	private static void appendAliases(@NotNull StringBuilder sql, @NotNull Map<@NotNull SQLValue, @Nullable String> values, @Nullable List<@Nullable Object> params) {
+		boolean first = true;
 		for (Map.Entry<SQLValue, String> value : values.entrySet()) {
-			String name = value.getKey().toString();
+			if (!first)
+				sql.append(", ");
+			first = false;
+			value.getKey().getExpression().appendTo(sql, params);
 			String alias = value.getValue();
 			if (alias != null)
-				name += " AS " + quoteName(alias);
-			valuesWithAlias.add(name);
+				sql.append(" AS ").append(quoteName(alias));
 		}
-		return String.join(", ", valuesWithAlias);
 	}
 }
@@ -6,7 +6,6 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -27,25 +26,27 @@ public class SQLUpdateBuilder extends SQLWOLOARCBuilder<SQLUpdateBuilder> {
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
 			throw new IllegalStateException("Cannot update data without table. You must call .table(table) to specify table");
 		if (this.columns.isEmpty())
 			throw new IllegalStateException("Cannot update no data. You must call .set(column, value) at least once to set some data");
 
 		// Update table
-		String table = quoteName(this.table);
+		sql.append("UPDATE ").append(quoteName(this.table)).append(" SET ");
 
 		// Set columns values
-		List<String> columns = new ArrayList<>();
-		for (Map.Entry<String, SQLValue> column : this.columns.entrySet())
-			columns.add(quoteName(column.getKey()) + " = " + column.getValue());
-		String set = String.join(", ", columns);
+		boolean first = true;
+		for (Map.Entry<String, SQLValue> column : this.columns.entrySet()) {
+			if (!first)
+				sql.append(", ");
+			first = false;
+			sql.append(quoteName(column.getKey())).append(" = ");
+			column.getValue().getExpression().appendTo(sql, params);
+		}
 
 		// Where Order Limit Offset
-		String wolo = super.build();
-
-		return "UPDATE " + table + " " + set + wolo;
+		this.appendWhere(sql, params);
+		this.appendOrderLimit(sql);
 	}
 }
@@ -2,6 +2,9 @@ package fr.theoszanto.sqldatabase.sqlbuilders.dml;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 public abstract class SQLWOLOARCBuilder<T extends SQLWOLOARCBuilder<T>> extends SQLWOLOBuilder<T> {
 	private boolean allRowsConfirm;
@@ -19,13 +22,12 @@ public abstract class SQLWOLOARCBuilder<T extends SQLWOLOARCBuilder<T>> extends
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	protected void appendWhere(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.condition == null && !this.allRowsConfirm)
 			throw new IllegalStateException("Cannot operate over all rows from table without explicit confirmation by calling .allRows()");
 		if (this.condition != null && this.allRowsConfirm)
 			throw new IllegalStateException("Cannot operate over all rows with a condition. You must call either .where(condition) or .allRows() but not both");
 
-		return super.build();
+		super.appendWhere(sql, params);
 	}
 }
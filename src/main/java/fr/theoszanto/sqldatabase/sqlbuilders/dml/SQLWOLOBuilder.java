@@ -7,6 +7,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
 import java.util.Map;
 
 public abstract class SQLWOLOBuilder<T extends SQLWOLOBuilder<T>> extends SQLBuilder {
@@ -50,24 +51,47 @@ public abstract class SQLWOLOBuilder<T extends SQLWOLOBuilder<T>> extends SQLBui
 		return this.getThis();
 	}
 
-	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	/**
+	 * Render the {@code WHERE} clause of this statement, if any.
+	 */
+	protected void appendWhere(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
+		if (this.condition != null) {
+			sql.append(" WHERE ");
+			this.condition.appendTo(sql, params);
+		}
+	}
+
+	/**
+	 * Render the {@code ORDER BY}, {@code LIMIT} and {@code OFFSET} clauses of
+	 * this statement, if any.
+	 */
+	protected void appendOrderLimit(@NotNull StringBuilder sql) {
 		if (this.limit < 0 && this.offset > 0)
 			throw new IllegalStateException("Cannot specify an OFFSET without a LIMIT value");
 
-		// Condition where select
-		String condition = this.condition == null ? "" : " WHERE " + this.condition;
-
 		// Order select
-		String orders = this.orders.isEmpty() ? "" : " ORDER BY " + CollectionsUtils.join(", ", this.orders, (column, sort) -> quoteName(column) + " " + sort.name());
+		if (!this.orders.isEmpty()) {
+			sql.append(" ORDER BY ");
+			boolean first = true;
+			for (Map.Entry<String, SQLSortOrder> order : this.orders.entrySet()) {
+				if (!first)
+					sql.append(", ");
+				first = false;
+				sql.append(quoteName(order.getKey())).append(' ').append(order.getValue().name());
+			}
+		}
 
 		// Limit select
-		String limit = this.limit >= 0 ? " LIMIT " + this.limit : "";
+		if (this.limit >= 0)
+			sql.append(" LIMIT ").append(this.limit);
 
 		// Offset select
-		String offset = this.offset > 0 ? " OFFSET " + this.offset : "";
+		if (this.offset > 0)
+			sql.append(" OFFSET ").append(this.offset);
+	}
 
-		return condition + orders + limit + offset;
+	@Override
+	protected int lengthHint() {
+		return 64 + (this.condition == null ? 0 : this.condition.getExpression().length());
 	}
 }
@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public abstract class SQLInnerLeftJoinBuilder<T extends SQLJoinBuilder<T>> extends SQLJoinBuilder<T> {
 	private @Nullable SQLConditionBuilder on;
 	private @Nullable String using;
@@ -28,16 +30,19 @@ public abstract class SQLInnerLeftJoinBuilder<T extends SQLJoinBuilder<T>> exten
 	}
 
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.on == null && this.using == null)
 			throw new IllegalStateException("Cannot join with neither ON nor USING");
 		if (this.on != null && this.using != null)
 			throw new IllegalStateException("Cannot join with both ON and USING");
 
-		// Join conditional clause
-		String condition = this.using == null ? " ON " + this.on : " USING (" + quoteName(this.using) + ")";
+		super.appendTo(sql, params);
 
-		return super.build() + condition;
+		// Join conditional clause
+		if (this.on != null) {
+			sql.append(" ON ");
+			this.on.appendTo(sql, params);
+		} else
+			sql.append(" USING (").append(quoteName(this.using)).append(')');
 	}
 }
@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public abstract class SQLJoinBuilder<T extends SQLJoinBuilder<T>> extends SQLBuilder {
 	private final @NotNull String prefix;
 	private @Nullable String table;
@@ -27,16 +29,21 @@ public abstract class SQLJoinBuilder<T extends SQLJoinBuilder<T>> extends SQLBui
 		return (T) this;
 	}
 
+	@Contract(pure = true)
+	public @Nullable String getTable() {
+		return this.table;
+	}
+
 	@Override
-	@Contract(value = " -> new", pure = true)
-	public @NotNull String build() {
+	public void appendTo(@NotNull StringBuilder sql, @Nullable List<@Nullable Object> params) {
 		if (this.table == null)
-			throw new IllegalStateException("Cannot join without table. You must call .table(table) to set the table");
+			throw new IllegalStateException("Cannot join without table. You must call .table(table) to specify the table");
 
-		// Join alias
-		String alias = this.alias == null ? "" : " AS " + quoteName(this.alias);
+		sql.append(this.prefix).append(" JOIN ").append(quoteName(this.table));
 
-		return this.prefix + " JOIN " + quoteName(this.table) + alias;
+		// Join alias
+		if (this.alias != null)
+			sql.append(" AS ").append(quoteName(this.alias));
 	}
 
 	@Contract(value = " -> new", pure = true)
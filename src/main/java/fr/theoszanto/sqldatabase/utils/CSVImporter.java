@@ -127,18 +127,20 @@ public class CSVImporter {
 				columns = iterator.next();
 			} else
 				columns = table.getColumns().keySet().toArray(new String[0]);
+			// Values are bound as parameters, hence limited in count per statement
+			int insertSize = Math.max(1, Math.min(this.insertSize, this.database.getMaxQueryParameters() / Math.max(1, columns.length)));
 			while (iterator.hasNext()) {
 				SQLInsertValuesBuilder insert = SQLBuilder.insertValues().into(table.getName());
 				int n = 0;
-				while (n < this.insertSize && iterator.hasNext()) {
+				while (n < insertSize && iterator.hasNext()) {
 					String[] row = iterator.next();
 					for (int i = 0; i < columns.length; i++) {
 						String value = row[i];
-						insert.value(columns[i], value.equals(this.nullValue) ? SQLValue.NULL : SQLValue.quoted(value));
+						insert.value(columns[i], value.equals(this.nullValue) ? SQLValue.NULL : SQLValue.param(value));
 					}
 					n++;
 				}
-				this.database.execute(insert.build());
+				this.database.execute(insert.buildQuery());
 			}
 		} catch (IOException | RuntimeException e) { // RuntimeException to catch CsvException from .iterator()
 			throw new DatabaseException("Unable to import data from CSV", e);
@@ -4,11 +4,10 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.AbstractCollection;
 import java.util.AbstractMap;
-import java.util.ArrayList;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -79,39 +78,167 @@ public class CollectionsUtils {
 		return new OrderedMap<>();
 	}
 
+	/**
+	 * Insertion-ordered map backed by an array of entries, indexed by an
+	 * open-addressing hash table of positions in that array, for constant time
+	 * lookups without the per-entry links of a {@link java.util.LinkedHashMap}.
+	 */
 	private static class OrderedMap<K, V> extends AbstractMap<K, V> {
+		private static final int INITIAL_CAPACITY = 8;
+
 		private final @NotNull EntrySet entrySet = new EntrySet();
+		// Entries in insertion order, null where removed
+		private @Nullable Entry<K, V> @NotNull[] entries = newEntries(INITIAL_CAPACITY);
+		// Linear probing table of positions in entries plus one, 0 when free
+		private int @NotNull[] index = new int[2 * INITIAL_CAPACITY];
+		private int end = 0;
+		private int size = 0;
+
+		@SuppressWarnings("unchecked")
+		private static <K, V> @Nullable Entry<K, V> @NotNull[] newEntries(int capacity) {
+			return (Entry<K, V>[]) new Entry<?, ?>[capacity];
+		}
+
+		private static int hash(@Nullable Object key) {
+			int h = Objects.hashCode(key);
+			return h ^ (h >>> 16);
+		}
+
+		private int slotOf(@Nullable Object key, int hash) {
+			int mask = this.index.length - 1;
+			for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+				int position = this.index[slot];
+				if (position == 0)
+					return -1;
+				Entry<K, V> e = this.entries[position - 1];
+				assert e != null;
+				if (e.hash == hash && Objects.equals(key, e.key))
+					return slot;
+			}
+		}
+
+		private @Nullable Entry<K, V> entryOf(@Nullable Object key) {
+			int slot = this.slotOf(key, hash(key));
+			return slot == -1 ? null : this.entries[this.index[slot] - 1];
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public boolean containsKey(@Nullable Object key) {
+			return this.entryOf(key) != null;
+		}
+
+		@Override
+		public @Nullable V get(@Nullable Object key) {
+			Entry<K, V> e = this.entryOf(key);
+			return e == null ? null : e.value;
+		}
 
 		@Override
 		public @Nullable V put(K key, V value) {
-			Iterator<Map.Entry<K, V>> i = entrySet.iterator();
-			if (key == null) {
-				while (i.hasNext()) {
-					Map.Entry<K, V> e = i.next();
-					if (e.getKey() == null)
-						return e.setValue(value);
-				}
-			} else {
-				while (i.hasNext()) {
-					Map.Entry<K, V> e = i.next();
-					if (key.equals(e.getKey()))
-						return e.setValue(value);
-				}
+			int hash = hash(key);
+			int slot = this.slotOf(key, hash);
+			if (slot != -1) {
+				Entry<K, V> e = this.entries[this.index[slot] - 1];
+				assert e != null;
+				return e.setValue(value);
 			}
-			entrySet.add(key, value);
+			if (this.end == this.entries.length) {
+				// Reclaim removed positions before growing
+				if (this.size < this.end / 2)
+					this.rebuild(this.entries.length);
+				else
+					this.rebuild(2 * this.entries.length);
+			}
+			int position = this.end++;
+			this.entries[position] = new Entry<>(hash, key, value);
+			this.insertSlot(hash, position);
+			this.size++;
 			return null;
 		}
 
+		@Override
+		public @Nullable V remove(@Nullable Object key) {
+			int slot = this.slotOf(key, hash(key));
+			if (slot == -1)
+				return null;
+			int position = this.index[slot] - 1;
+			Entry<K, V> e = this.entries[position];
+			assert e != null;
+			this.removeAt(slot, position);
+			return e.value;
+		}
+
+		@Override
+		public void clear() {
+			Arrays.fill(this.entries, 0, this.end, null);
+			Arrays.fill(this.index, 0);
+			this.end = 0;
+			this.size = 0;
+		}
+
 		@Override
 		public @NotNull Set<Map.Entry<K, V>> entrySet() {
-			return entrySet;
+			return this.entrySet;
+		}
+
+		private void insertSlot(int hash, int position) {
+			int mask = this.index.length - 1;
+			int slot = hash & mask;
+			while (this.index[slot] != 0)
+				slot = (slot + 1) & mask;
+			this.index[slot] = position + 1;
+		}
+
+		private void removeAt(int slot, int position) {
+			this.entries[position] = null;
+			this.size--;
+			// Backward shift deletion, keeping probe sequences unbroken
+			int mask = this.index.length - 1;
+			int free = slot;
+			for (int next = (free + 1) & mask; this.index[next] != 0; next = (next + 1) & mask) {
+				Entry<K, V> e = this.entries[this.index[next] - 1];
+				assert e != null;
+				int home = e.hash & mask;
+				if (((next - home) & mask) >= ((next - free) & mask)) {
+					this.index[free] = this.index[next];
+					free = next;
+				}
+			}
+			this.index[free] = 0;
+		}
+
+		/**
+		 * Compact the entries into an array of the given capacity and rebuild
+		 * the index accordingly.
+		 */
+		private void rebuild(int capacity) {
+			Entry<K, V>[] entries = newEntries(capacity);
+			int end = 0;
+			for (int i = 0; i < this.end; i++)
+				if (this.entries[i] != null)
+					entries[end++] = this.entries[i];
+			this.entries = entries;
+			this.end = end;
+			this.index = new int[2 * capacity];
+			for (int i = 0; i < end; i++) {
+				Entry<K, V> e = entries[i];
+				assert e != null;
+				this.insertSlot(e.hash, i);
+			}
 		}
 
 		private static class Entry<K, V> implements Map.Entry<K, V> {
+			private final int hash;
 			private final K key;
 			private V value;
 
-			private Entry(K key, V value) {
+			private Entry(int hash, K key, V value) {
+				this.hash = hash;
 				this.key = key;
 				this.value = value;
 			}
@@ -136,32 +263,35 @@ public class CollectionsUtils {
 			@Override
 			public boolean equals(Object o) {
 				if (this == o) return true;
-				if (o == null || getClass() != o.getClass()) return false;
-				Entry<?, ?> entry = (Entry<?, ?>) o;
-				return Objects.equals(key, entry.key);
+				if (!(o instanceof Map.Entry)) return false;
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+				return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
 			}
 
 			@Override
 			public int hashCode() {
-				return key != null ? key.hashCode() : 0;
+				return Objects.hashCode(key) ^ Objects.hashCode(value);
 			}
-		}
-
-		private class EntrySet extends AbstractCollection<Map.Entry<K, V>> implements Set<Map.Entry<K, V>> {
-			private final @NotNull List<@NotNull Entry<K, V>> content = new ArrayList<>();
 
-			private void add(K key, V value) {
-				add(new Entry<>(key, value));
+			@Override
+			public String toString() {
+				return key + "=" + value;
 			}
+		}
 
+		private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
 			@Override
-			public boolean add(Map.Entry<K, V> e) {
-				return content.add((Entry<K, V>) e);
+			public int size() {
+				return size;
 			}
 
 			@Override
-			public int size() {
-				return content.size();
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry))
+					return false;
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+				Entry<K, V> e = entryOf(entry.getKey());
+				return e != null && Objects.equals(e.value, entry.getValue());
 			}
 
 			@Override
@@ -171,27 +301,41 @@ public class CollectionsUtils {
 
 			@Override
 			public void clear() {
-				content.clear();
+				OrderedMap.this.clear();
 			}
 
 			private class EntryIterator implements Iterator<Map.Entry<K, V>> {
-				private int i = -1;
+				private int next = this.skipRemoved(0);
+				private int last = -1;
+
+				private int skipRemoved(int position) {
+					while (position < end && entries[position] == null)
+						position++;
+					return position;
+				}
 
 				@Override
 				public boolean hasNext() {
-					return i + 1 < content.size();
+					return next < end;
 				}
 
 				@Override
 				public Map.Entry<K, V> next() {
-					if (this.hasNext())
-						return content.get(++i);
-					throw new NoSuchElementException();
+					if (!this.hasNext())
+						throw new NoSuchElementException();
+					last = next;
+					next = this.skipRemoved(next + 1);
+					return entries[last];
 				}
 
 				@Override
 				public void remove() {
-					content.remove(i);
+					if (last == -1)
+						throw new IllegalStateException();
+					Entry<K, V> e = entries[last];
+					assert e != null;
+					removeAt(slotOf(e.key, e.hash), last);
+					last = -1;
 				}
 			}
 		}
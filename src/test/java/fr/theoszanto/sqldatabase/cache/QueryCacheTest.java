@@ -0,0 +1,58 @@
+package fr.theoszanto.sqldatabase.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Check that results loaded concurrently with an invalidation are not cached.
+ */
+class QueryCacheTest {
+	private static final String SQL = "SELECT * FROM `user`";
+	private static final Object[] PARAMS = new Object[0];
+	private static final List<String> TABLES = Collections.singletonList("user");
+
+	@Test
+	void putWithCurrentStamp() {
+		QueryCache cache = new QueryCache(16);
+		long stamp = cache.getStamp(TABLES);
+		assertTrue(cache.put(SQL, PARAMS, TABLES, "result", stamp));
+		assertEquals("result", cache.get(SQL, PARAMS));
+	}
+
+	@Test
+	void putAfterInvalidate() {
+		QueryCache cache = new QueryCache(16);
+		long stamp = cache.getStamp(TABLES);
+		cache.invalidate("USER");
+		assertFalse(cache.put(SQL, PARAMS, TABLES, "stale", stamp));
+		assertNull(cache.get(SQL, PARAMS));
+	}
+
+	@Test
+	void putAfterClearOnUncachedTable() {
+		QueryCache cache = new QueryCache(16);
+		long stamp = cache.getStamp(TABLES);
+		cache.clear();
+		assertFalse(cache.put(SQL, PARAMS, TABLES, "stale", stamp));
+		assertNull(cache.get(SQL, PARAMS));
+		assertTrue(cache.put(SQL, PARAMS, TABLES, "result", cache.getStamp(TABLES)));
+		assertEquals("result", cache.get(SQL, PARAMS));
+	}
+
+	@Test
+	void putAfterClearOnCachedTable() {
+		QueryCache cache = new QueryCache(16);
+		assertTrue(cache.put("SELECT 1 FROM `user`", PARAMS, TABLES, "other", cache.getStamp(TABLES)));
+		long stamp = cache.getStamp(TABLES);
+		cache.clear();
+		assertFalse(cache.put(SQL, PARAMS, TABLES, "stale", stamp));
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,129 @@
+package fr.theoszanto.sqldatabase.utils;
+
+import fr.theoszanto.sqldatabase.sqlbuilders.SQLBuilder;
+import fr.theoszanto.sqldatabase.sqlbuilders.SQLValue;
+import fr.theoszanto.sqldatabase.sqlbuilders.dml.SQLInsertValuesBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Compare {@link CollectionsUtils#orderedMap()} with the former linear scan
+ * implementation on the access patterns of the API: building the columns of
+ * wide tables and filling bulk inserts.
+ *
+ * <p>Run with {@code java -cp <classes>:<test-classes> fr.theoszanto.sqldatabase.utils.OrderedMapBenchmark [columns] [rows]}.</p>
+ */
+public class OrderedMapBenchmark {
+	private static final int WARMUP = 5;
+	private static final int ITERATIONS = 10;
+
+	// Keeps the results alive so that the work is not optimized away
+	private static volatile int sink;
+
+	public static void main(String[] args) {
+		int columns = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+		int rows = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		String[] names = new String[columns];
+		for (int i = 0; i < columns; i++)
+			names[i] = "column_" + i;
+
+		System.out.println("Wide table, " + columns + " columns:");
+		run("  linear", () -> wideTable(new LinearOrderedMap<>(), names));
+		run("  hashed", () -> wideTable(CollectionsUtils.orderedMap(), names));
+
+		System.out.println("Bulk insert values, " + columns + " columns x " + rows + " rows:");
+		run("  linear", () -> insertValues(new LinearOrderedMap<>(), names, rows));
+		run("  hashed", () -> insertValues(CollectionsUtils.orderedMap(), names, rows));
+
+		System.out.println("SQLInsertValuesBuilder build, " + columns + " columns x " + rows + " rows:");
+		run("  hashed", () -> {
+			SQLInsertValuesBuilder insert = SQLBuilder.insertValues().into("wide");
+			for (int row = 0; row < rows; row++)
+				for (String name : names)
+					insert.value(name, SQLValue.PLACEHOLDER);
+			return insert.build().length();
+		});
+	}
+
+	/**
+	 * Register each column once, checking for duplicates as
+	 * {@code EntitiesFactory} does, then resolve each of them by name, as
+	 * foreign keys and binding plans do.
+	 */
+	private static int wideTable(@NotNull Map<String, Integer> columns, @NotNull String @NotNull[] names) {
+		for (int i = 0; i < names.length; i++)
+			if (!columns.containsKey(names[i]))
+				columns.put(names[i], i);
+		int sum = 0;
+		for (String name : names)
+			sum += columns.get(name);
+		return sum;
+	}
+
+	/**
+	 * Append the values of each row column by column, as
+	 * {@link SQLInsertValuesBuilder#value(String, SQLValue)} does.
+	 */
+	private static int insertValues(@NotNull Map<String, List<SQLValue>> values, @NotNull String @NotNull[] names, int rows) {
+		for (int row = 0; row < rows; row++)
+			for (String name : names)
+				values.computeIfAbsent(name, k -> new ArrayList<>()).add(SQLValue.PLACEHOLDER);
+		int size = 0;
+		for (List<SQLValue> column : values.values())
+			size += column.size();
+		return size;
+	}
+
+	private static void run(@NotNull String name, @NotNull Supplier<Integer> task) {
+		for (int i = 0; i < WARMUP; i++)
+			sink += task.get();
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			sink += task.get();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("%s: %,10d us (best of %d)%n", name, best / 1_000, ITERATIONS);
+	}
+
+	/**
+	 * The former implementation, scanning its entries on every lookup.
+	 */
+	private static class LinearOrderedMap<K, V> extends AbstractMap<K, V> {
+		private final @NotNull List<Map.Entry<K, V>> entries = new ArrayList<>();
+
+		@Override
+		public @Nullable V put(K key, V value) {
+			for (Map.Entry<K, V> e : this.entries)
+				if (Objects.equals(key, e.getKey()))
+					return e.setValue(value);
+			this.entries.add(new SimpleEntry<>(key, value));
+			return null;
+		}
+
+		@Override
+		public @NotNull Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public @NotNull Iterator<Map.Entry<K, V>> iterator() {
+					return entries.iterator();
+				}
+
+				@Override
+				public int size() {
+					return entries.size();
+				}
+			};
+		}
+	}
+}